@@ -0,0 +1,152 @@
+package org.tbee.tecl.benchmarks;
+
+/*-
+ * #%L
+ * TECL
+ * %%
+ * Copyright (C) 2020 Tom Eugelink
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tbee.tecl.TECL;
+
+/**
+ * One benchmark per public accessor family on TECL, meant to be run with -prof gc: the interesting number is gc.alloc.rate.norm (bytes per lookup).
+ * AllocationCheck runs these and compares the result against the committed baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AllocationBenchmark {
+
+	private TECL tecl;
+	private TECL service;
+	private TECL servers;
+	
+	@Setup
+	public void setup() {
+		tecl = TECL.parser().parse(ConfigGenerator.Size.SMALL.config());
+		service = tecl.grp("service1");
+		servers = service.grp("servers");
+	}
+	
+	/**
+	 * The servers table parsed with the schema, so its typed columns are compacted.
+	 * This is a separate state, so only the benchmarks using it pay for validating during setup, which changes what the JIT sees.
+	 */
+	@State(Scope.Benchmark)
+	public static class Typed {
+		TECL servers;
+		
+		@Setup
+		public void setup() {
+			servers = TECL.parser().schema(ConfigGenerator.Size.SMALL.schema()).parse(ConfigGenerator.Size.SMALL.config()).grp("service1").grp("servers");
+		}
+	}
+	
+	@Benchmark
+	public String str() {
+		return tecl.str("/service1/database/url");
+	}
+	
+	@Benchmark
+	public Integer integer() {
+		return service.integer("database/pool/dialect/version");
+	}
+	
+	@Benchmark
+	public BigDecimal bd() {
+		return service.bd("amount");
+	}
+	
+	@Benchmark
+	public LocalDateTime localDateTime() {
+		return service.localDateTime("started");
+	}
+	
+	@Benchmark
+	public String strIdx() {
+		return servers.str(3, "name");
+	}
+	
+	@Benchmark
+	public Integer integerIdx() {
+		return servers.integer(3, "maxSessions");
+	}
+	
+	@Benchmark
+	public String strIdxCompacted(Typed typed) {
+		return typed.servers.str(3, "maxSessions");
+	}
+	
+	@Benchmark
+	public Integer integerIdxCompacted(Typed typed) {
+		return typed.servers.integer(3, "maxSessions");
+	}
+	
+	@Benchmark
+	public Integer indexOf() {
+		return servers.integer("name", "s1-3", "maxSessions", null);
+	}
+	
+	@Benchmark
+	public List<Integer> list() {
+		return servers.integers("maxSessions");
+	}
+	
+	@Benchmark
+	public TECL grp() {
+		return tecl.grp("service1");
+	}
+	
+	@Benchmark
+	public TECL attr() {
+		return service.attr("text");
+	}
+	
+	@Benchmark
+	public List<TECL> rows() {
+		return servers.rows();
+	}
+	
+	@Benchmark
+	public int rowStream() {
+		return servers.rowStream().mapToInt(row -> row.integer("maxSessions")).sum();
+	}
+}
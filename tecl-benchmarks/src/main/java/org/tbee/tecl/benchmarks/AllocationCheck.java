@@ -0,0 +1,164 @@
+package org.tbee.tecl.benchmarks;
+
+/*-
+ * #%L
+ * TECL
+ * %%
+ * Copyright (C) 2020 Tom Eugelink
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs AllocationBenchmark with the GC profiler and compares the bytes per operation against a baseline file.
+ * Exits with 1 when an accessor allocates more than the threshold above its baseline, so it can be used in a build pipeline.
+ * A measured accessor without a baseline, or a baseline of an accessor that is no longer measured, also fails the check: the baseline must be updated together with the benchmark.
+ * 
+ * Usage: [check|update] [baseline file] [threshold in percent]
+ */
+public class AllocationCheck {
+	
+	static final String DEFAULT_BASELINE = "tecl-benchmarks/allocation-baseline.properties";
+	static final double DEFAULT_THRESHOLD_PERCENT = 10.0;
+	
+	/* gc.alloc.rate.norm is an average and may be off by a few bytes, allocations are at least 16 bytes anyhow */
+	static final double NOISE_BYTES = 8.0;
+	
+	private static final String ALLOC_RATE_NORM = "gc.alloc.rate.norm";
+
+	public static void main(String[] args) throws IOException, RunnerException {
+		String mode = (args.length > 0 ? args[0] : "check");
+		Path baselineFile = Paths.get(args.length > 1 ? args[1] : DEFAULT_BASELINE);
+		double thresholdPercent = (args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT);
+		if (!"check".equals(mode) && !"update".equals(mode)) {
+			System.out.println("Usage: ");
+			System.out.println("  [check|update] [baseline file, default " + DEFAULT_BASELINE + "] [threshold in percent, default " + DEFAULT_THRESHOLD_PERCENT + "]");
+			System.exit(1);
+		}
+		
+		Map<String, Double> measured = measure();
+		if ("update".equals(mode)) {
+			writeBaseline(baselineFile, measured);
+			System.out.println("Baseline written to " + baselineFile);
+			return;
+		}
+		
+		Map<String, Double> baseline = readBaseline(baselineFile);
+		int regressions = compare(baseline, measured, thresholdPercent);
+		if (regressions > 0) {
+			System.out.println(regressions + " accessor(s) allocate more than " + thresholdPercent + "% above, or do not match, the baseline in " + baselineFile);
+			System.exit(1);
+		}
+		System.out.println("No allocation regressions above " + thresholdPercent + "%");
+	}
+	
+	/*
+	 * Runs the benchmarks and returns the bytes per operation per benchmark method
+	 */
+	private static Map<String, Double> measure() throws RunnerException {
+		Map<String, Double> measured = new TreeMap<>();
+		for (RunResult runResult : new Runner(new OptionsBuilder()
+				.include(AllocationBenchmark.class.getName() + "\\.")
+				.addProfiler(GCProfiler.class)
+				.build()).run()) {
+			String benchmark = runResult.getParams().getBenchmark();
+			Result<?> result = runResult.getSecondaryResults().get(ALLOC_RATE_NORM);
+			if (result == null) {
+				throw new IllegalStateException("No " + ALLOC_RATE_NORM + " was reported for " + benchmark + ", is the JVM supporting allocation counting?");
+			}
+			measured.put(benchmark.substring(benchmark.lastIndexOf('.') + 1), result.getScore());
+		}
+		return measured;
+	}
+	
+	/**
+	 * Returns the number of regressions, and prints a line per benchmark.
+	 * An accessor missing from either the baseline or the measurements counts as a regression.
+	 */
+	static int compare(Map<String, Double> baseline, Map<String, Double> measured, double thresholdPercent) {
+		int regressions = 0;
+		System.out.println(String.format("%-20s %12s %12s", "accessor", "baseline B/op", "measured B/op"));
+		for (Map.Entry<String, Double> entry : measured.entrySet()) {
+			Double baselineBytes = baseline.get(entry.getKey());
+			double measuredBytes = entry.getValue();
+			String verdict = "";
+			if (baselineBytes == null) {
+				verdict = "NO BASELINE";
+				regressions++;
+			}
+			else if (measuredBytes > baselineBytes * (1.0 + thresholdPercent / 100.0) + NOISE_BYTES) {
+				verdict = "REGRESSION";
+				regressions++;
+			}
+			System.out.println(String.format(Locale.ROOT, "%-20s %12s %12.1f  %s", entry.getKey(), (baselineBytes == null ? "-" : String.format(Locale.ROOT, "%.1f", baselineBytes)), measuredBytes, verdict));
+		}
+		for (Map.Entry<String, Double> entry : baseline.entrySet()) {
+			if (!measured.containsKey(entry.getKey())) {
+				System.out.println(String.format(Locale.ROOT, "%-20s %12.1f %12s  %s", entry.getKey(), entry.getValue(), "-", "NOT MEASURED"));
+				regressions++;
+			}
+		}
+		return regressions;
+	}
+	
+	static Map<String, Double> readBaseline(Path baselineFile) throws IOException {
+		Properties properties = new Properties();
+		try (
+			Reader reader = Files.newBufferedReader(baselineFile, StandardCharsets.UTF_8);
+		) {
+			properties.load(reader);
+		}
+		Map<String, Double> baseline = new TreeMap<>();
+		for (String key : properties.stringPropertyNames()) {
+			baseline.put(key, Double.valueOf(properties.getProperty(key)));
+		}
+		return baseline;
+	}
+	
+	static void writeBaseline(Path baselineFile, Map<String, Double> measured) throws IOException {
+		try (
+			Writer writer = Files.newBufferedWriter(baselineFile, StandardCharsets.UTF_8);
+		) {
+			writer.write("# " + ALLOC_RATE_NORM + " (bytes per operation) of AllocationBenchmark, regenerate with: AllocationCheck update\n");
+			for (Map.Entry<String, Double> entry : measured.entrySet()) {
+				writer.write(entry.getKey() + "=" + String.format(Locale.ROOT, "%.1f", entry.getValue()) + "\n");
+			}
+		}
+	}
+}
@@ -0,0 +1,210 @@
+package org.tbee.tecl.benchmarks;
+
+/*-
+ * #%L
+ * TECL
+ * %%
+ * Copyright (C) 2020 Tom Eugelink
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Generates configurations that look like real ones (see the README), scaled by the number of services and servers per service.
+ * Each service contains properties of all build-in types, a multiline string, attributes, a reference, 
+ * nested groups four levels deep, and a table of servers.
+ * A matching schema is generated as well.
+ * 
+ * Usage: java -cp benchmarks.jar org.tbee.tecl.benchmarks.ConfigGenerator <small|medium|huge> <config file> [<schema file>]
+ */
+public final class ConfigGenerator {
+	
+	/**
+	 * Predefined sizes
+	 */
+	public enum Size {
+		SMALL(2, 5), // ~ 1 KB
+		MEDIUM(25, 100), // ~ 100 KB
+		HUGE(100, 2000); // ~ 7 MB
+		
+		final int services;
+		final int serversPerService;
+		
+		Size(int services, int serversPerService) {
+			this.services = services;
+			this.serversPerService = serversPerService;
+		}
+		
+		public String config() {
+			return ConfigGenerator.config(services, serversPerService);
+		}
+		
+		public String schema() {
+			return ConfigGenerator.schema(services);
+		}
+	}
+	
+	private ConfigGenerator() {
+	}
+	
+	/**
+	 * @param services the number of service groups
+	 * @param serversPerService the number of rows in the table of each service
+	 * @return the configuration
+	 */
+	public static String config(int services, int serversPerService) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("# Generated configuration: ").append(services).append(" services, ").append(serversPerService).append(" servers each\n");
+		sb.append("title : \"TECL benchmark\"\n");
+		sb.append("releaseDateTime : \"2020-09-12T12:34:56\"\n");
+		sb.append("protocol : http\n");
+		sb.append("hosts : [alpha, beta, gamma]\n");
+		sb.append("\n");
+		sb.append("defaults {\n");
+		sb.append("    timeout : 30\n");
+		sb.append("    retries : 3\n");
+		sb.append("    ratio : 0.75\n");
+		sb.append("}\n");
+		for (int service = 0; service < services; service++) {
+			sb.append("\n");
+			sb.append("service").append(service).append(" {\n");
+			sb.append("    description : \"\"\"\n");
+			sb.append("        Service ").append(service).append(" of the generated configuration.\n");
+			sb.append("        The indentation of these lines is removed when read.\n");
+			sb.append("        \"\"\"\n");
+			sb.append("    enabled : ").append(service % 3 != 0).append("\n");
+			sb.append("    timeout : $/defaults/timeout\n");
+			sb.append("    url : \"https://service").append(service).append(".example.com/api\"\n");
+			sb.append("    amount : ").append(service * 1000 + 0.25).append("\n");
+			sb.append("    started : \"2020-01-").append(String.format("%02d", service % 28 + 1)).append("T08:00:00\"\n");
+			sb.append("    text(x=").append(service).append(" y=20) : \"Service ").append(service).append("\"\n");
+			sb.append("    database {\n");
+			sb.append("        url : \"jdbc:postgresql://db").append(service).append(".example.com:5432/service").append(service).append("\"\n");
+			sb.append("        user : \"admin\"\n");
+			sb.append("        timeout : 10\n");
+			sb.append("        pool {\n");
+			sb.append("            min : 1\n");
+			sb.append("            max : 20\n");
+			sb.append("            dialect {\n");
+			sb.append("                database : postgres\n");
+			sb.append("                version : 12\n");
+			sb.append("            }\n");
+			sb.append("        }\n");
+			sb.append("    }\n");
+			sb.append("    servers {\n");
+			sb.append("        | name | datacenter | maxSessions | weight |\n");
+			for (int server = 0; server < serversPerService; server++) {
+				sb.append("        | s").append(service).append("-").append(server)
+					.append(" | ").append((char)('A' + server % 4))
+					.append(" | ").append(server % 50)
+					.append(" | ").append(server % 10 / 10.0)
+					.append(" |\n");
+			}
+			sb.append("    }\n");
+			sb.append("}\n");
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * @param services the number of service groups, as used to generate the configuration
+	 * @return a schema matching the generated configuration
+	 */
+	public static String schema(int services) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("| id              | type          | subtype  | minValues | maxValues | attr      |\n");
+		sb.append("| title           | String        |          | 1         |           |           |\n");
+		sb.append("| releaseDateTime | LocalDateTime |          |           |           |           |\n");
+		sb.append("| protocol        | String        |          |           |           |           |\n");
+		sb.append("| hosts           | list          | String   | 1         | 5         |           |\n");
+		sb.append("| defaults        | group         | defaults |           |           |           |\n");
+		for (int service = 0; service < services; service++) {
+			sb.append("| service").append(service).append(" | group | service |  |  |  |\n");
+		}
+		sb.append("\n");
+		sb.append("defaults {\n");
+		sb.append("    | id      | type    |\n");
+		sb.append("    | timeout | Integer |\n");
+		sb.append("    | retries | Integer |\n");
+		sb.append("    | ratio   | Double  |\n");
+		sb.append("}\n");
+		sb.append("service {\n");
+		sb.append("    | id          | type          | subtype  | attr      |\n");
+		sb.append("    | description | String        |          |           |\n");
+		sb.append("    | enabled     | Boolean       |          |           |\n");
+		sb.append("    | timeout     | Integer       |          |           |\n");
+		sb.append("    | url         | URI           |          |           |\n");
+		sb.append("    | amount      | BigDecimal    |          |           |\n");
+		sb.append("    | started     | LocalDateTime |          |           |\n");
+		sb.append("    | text        | String        |          | textAttrs |\n");
+		sb.append("    | database    | group         | database |           |\n");
+		sb.append("    | servers     | group         | servers  |           |\n");
+		sb.append("    textAttrs {\n"); // attributes are looked up relative to the group
+		sb.append("        | id | type    |\n");
+		sb.append("        | x  | Integer |\n");
+		sb.append("        | y  | Integer |\n");
+		sb.append("    }\n");
+		sb.append("}\n");
+		sb.append("database {\n");
+		sb.append("    | id      | type    | subtype |\n");
+		sb.append("    | url     | String  |         |\n");
+		sb.append("    | user    | String  |         |\n");
+		sb.append("    | timeout | Integer |         |\n");
+		sb.append("    | pool    | group   | pool    |\n");
+		sb.append("}\n");
+		sb.append("pool {\n");
+		sb.append("    | id      | type    | subtype |\n");
+		sb.append("    | min     | Integer |         |\n");
+		sb.append("    | max     | Integer |         |\n");
+		sb.append("    | dialect | group   | dialect |\n");
+		sb.append("}\n");
+		sb.append("dialect {\n");
+		sb.append("    | id       | type    |\n");
+		sb.append("    | database | String  |\n");
+		sb.append("    | version  | Integer |\n");
+		sb.append("}\n");
+		sb.append("servers {\n");
+		sb.append("    | id          | type    |\n");
+		sb.append("    | name        | String  |\n");
+		sb.append("    | datacenter  | String  |\n");
+		sb.append("    | maxSessions | Integer |\n");
+		sb.append("    | weight      | Double  |\n");
+		sb.append("}\n");
+		return sb.toString();
+	}
+	
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: ");
+			System.out.println("  <small|medium|huge> <config file> [<schema file>]");
+			System.exit(1);
+		}
+		Size size = Size.valueOf(args[0].toUpperCase());
+		Files.writeString(Paths.get(args[1]), size.config(), StandardCharsets.UTF_8);
+		if (args.length > 2) {
+			Files.writeString(Paths.get(args[2]), size.schema(), StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,144 @@
+package org.tbee.tecl.benchmarks;
+
+/*-
+ * #%L
+ * TECL
+ * %%
+ * Copyright (C) 2020 Tom Eugelink
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tbee.tecl.TECL;
+import org.tbee.tecl.TECLParser;
+
+/**
+ * The @import preprocessing: a 100k line config split over dozens of imported files, some of them deeply nested.
+ * The same config is also parsed with all lines inlined, the difference between the two is the cost of handling the imports.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImportBenchmark {
+	
+	private static final int FRAGMENTS = 50;
+	private static final int LINES_PER_FRAGMENT = 2_000;
+	private static final int NESTING_DEPTH = 2_000;
+	
+	private Path dir;
+	private String inlinedConfig;
+	private String importedConfig;
+	private ExecutorService executorService;
+	
+	@Setup
+	public void setup() throws IOException {
+		dir = Files.createTempDirectory("tecl-import-benchmark");
+		
+		// Imports without a protocol are resolved relative to the current directory
+		String relativeDir = Paths.get("").toAbsolutePath().relativize(dir).toString() + File.separator;
+		StringBuilder inlined = new StringBuilder();
+		StringBuilder imported = new StringBuilder();
+		
+		// Flat fragments
+		for (int fragment = 0; fragment < FRAGMENTS; fragment++) {
+			StringBuilder lines = new StringBuilder();
+			lines.append("key").append(fragment).append(" : value").append(fragment).append("\n");
+			for (int line = 1; line < LINES_PER_FRAGMENT; line++) {
+				lines.append("# fragment ").append(fragment).append(" line ").append(line).append("\n"); // comments keep the ANTLR part of the parse cheap 
+			}
+			Files.writeString(dir.resolve("fragment" + fragment + ".tecl"), lines, StandardCharsets.UTF_8);
+			inlined.append(lines);
+			imported.append("@import ").append(relativeDir).append("fragment").append(fragment).append(".tecl\n");
+		}
+		
+		// A deeply nested chain, each file imports the next one relative to itself
+		for (int depth = 0; depth < NESTING_DEPTH; depth++) {
+			String line = "nested" + depth + " : value" + depth + "\n";
+			String importLine = (depth + 1 < NESTING_DEPTH ? "@import nested" + (depth + 1) + ".tecl\n" : "");
+			Files.writeString(dir.resolve("nested" + depth + ".tecl"), line + importLine, StandardCharsets.UTF_8);
+			inlined.append(line);
+		}
+		imported.append("@import ").append(relativeDir).append("nested0.tecl\n");
+		
+		inlinedConfig = inlined.toString();
+		importedConfig = imported.toString();
+		executorService = Executors.newFixedThreadPool(8);
+		
+		// Make sure both configs result in the same values before measuring anything
+		parse(TECL.parser(), inlinedConfig);
+		parse(TECL.parser(), importedConfig);
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		executorService.shutdown();
+		for (File file : dir.toFile().listFiles()) {
+			Files.delete(file.toPath());
+		}
+		Files.delete(dir);
+	}
+	
+	@Benchmark
+	public TECL inlined() {
+		return parse(TECL.parser(), inlinedConfig);
+	}
+	
+	@Benchmark
+	public TECL imported() {
+		return parse(TECL.parser(), importedConfig);
+	}
+	
+	@Benchmark
+	public TECL importedWithPrefetch() {
+		return parse(TECL.parser().importExecutor(executorService), importedConfig);
+	}
+	
+	private static TECL parse(TECLParser parser, String config) {
+		TECL tecl = parser.parse(config);
+		if (!("value" + (NESTING_DEPTH - 1)).equals(tecl.str("nested" + (NESTING_DEPTH - 1)))) {
+			throw new IllegalStateException("Config was not parsed correctly");
+		}
+		return tecl;
+	}
+}
@@ -0,0 +1,162 @@
+package org.tbee.tecl.benchmarks;
+
+/*-
+ * #%L
+ * TECL
+ * %%
+ * Copyright (C) 2020 Tom Eugelink
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tbee.tecl.TECL;
+
+/**
+ * Reading values from a parsed (and optionally frozen) medium sized configuration: 
+ * at different path depths, through references, and in tables by index and by value.
+ * Run with -prof gc to also see the bytes allocated per lookup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LookupBenchmark {
+	
+	@Param({"false", "true"})
+	public boolean frozen;
+
+	private TECL tecl;
+	private TECL servers;
+	
+	@Setup
+	public void setup() {
+		tecl = TECL.parser().parse(ConfigGenerator.Size.MEDIUM.config());
+		if (frozen) {
+			tecl.freeze();
+		}
+		servers = tecl.grp("/service12/servers");
+	}
+	
+	// path depth
+	
+	@Benchmark
+	public String strDepth1() {
+		return tecl.str("title");
+	}
+	
+	@Benchmark
+	public String strDepth3() {
+		return tecl.str("/service12/database/url");
+	}
+	
+	@Benchmark
+	public String strDepth5() {
+		return tecl.str("/service12/database/pool/dialect/database");
+	}
+	
+	@Benchmark
+	public Integer integerDepth5() {
+		return tecl.integer("/service12/database/pool/dialect/version");
+	}
+	
+	@Benchmark
+	public String multiline() {
+		return tecl.str("/service12/description");
+	}
+	
+	@Benchmark
+	public BigDecimal bd() {
+		return tecl.bd("/service12/amount");
+	}
+	
+	@Benchmark
+	public LocalDateTime localDateTime() {
+		return tecl.localDateTime("/service12/started");
+	}
+	
+	@Benchmark
+	public List<String> list() {
+		return tecl.strs("hosts");
+	}
+	
+	// groups
+	
+	@Benchmark
+	public TECL grpDepth3() {
+		return tecl.grp("service12").grp("database").grp("pool");
+	}
+	
+	@Benchmark
+	public List<TECL> grps() {
+		return tecl.grps("service12");
+	}
+	
+	@Benchmark
+	public String grpThenStr() {
+		return tecl.grp("service12").str("url");
+	}
+	
+	@Benchmark
+	public Integer attr() {
+		return tecl.grp("service12").attr("text").integer("x");
+	}
+	
+	// references
+	
+	@Benchmark
+	public Integer reference() {
+		return tecl.integer("/service12/timeout");
+	}
+	
+	// tables
+	
+	@Benchmark
+	public Integer tableByIndex() {
+		return servers.integer(42, "maxSessions");
+	}
+	
+	@Benchmark
+	public Integer tableByValue() {
+		return servers.integer("name", "s12-42", "maxSessions", null);
+	}
+	
+	@Benchmark
+	public int tableRowStream() {
+		return servers.rowStream().mapToInt(row -> row.integer("maxSessions")).sum();
+	}
+}
@@ -31,7 +31,13 @@ grammar TECL;
 	
 	public ParserRuleContext parse(Listener listener) {
 		this.listener = listener;
-		return this.configs();	
+		this.listValues = new ArrayList<>(); // a parser may be reused, values of a previous parse must not leak into this one
+		try {
+			return this.configs();
+		}
+		finally {
+			this.listener = null; // do not hold on to the listener (and the TECL it is building) after parsing
+		}
 	}
 	private Listener listener;
 	
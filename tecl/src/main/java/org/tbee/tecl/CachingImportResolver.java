@@ -0,0 +1,214 @@
+package org.tbee.tecl;
+
+/*-
+ * #%L
+ * TECL
+ * %%
+ * Copyright (C) 2020 Tom Eugelink
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the content of imported files and URLs, so repeated parses that share imports do not need to read them again.
+ * Entries are keyed by canonical path or URL and validated on every import:
+ * <ul>
+ * <li>files (and file: URLs) by their last modified time and size, or by the hash of their content</li>
+ * <li>other URLs using If-Modified-Since, and if the server still sends the content, by the hash of their content</li>
+ * </ul>
+ * A single instance can be shared by any number of parsers and threads.
+ * 
+ * <pre>{@code
+ *     CachingImportResolver importResolver = new CachingImportResolver();
+ *     TECL tecl = TECL.parser().importResolver(importResolver).parse(...);
+ * }</pre>
+ */
+public class CachingImportResolver extends DefaultImportResolver {
+	
+	/**
+	 * How to determine if a cached file is still valid
+	 */
+	public enum Validation {
+		/** Compare the last modified time and size; this does not read the file */ 
+		MTIME_AND_SIZE,
+		/** Read the file and compare the hash of its content */ 
+		CONTENT_HASH
+	}
+	
+	private final Validation validation;
+	private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	
+	public CachingImportResolver() {
+		this(Validation.MTIME_AND_SIZE);
+	}
+	
+	public CachingImportResolver(Validation validation) {
+		this.validation = validation;
+	}
+	
+	/*
+	 * A cached import
+	 */
+	static private class Entry {
+		final String content;
+		final long lastModified;
+		final long size;
+		final byte[] hash;
+		
+		Entry(String content, long lastModified, long size, byte[] hash) {
+			this.content = content;
+			this.lastModified = lastModified;
+			this.size = size;
+			this.hash = hash;
+		}
+	}
+
+	@Override
+	public Import resolve(String source, File curDir) throws IOException {
+		if (isURL(source)) {
+			URL url = new URL(source);
+			if ("file".equals(url.getProtocol())) {
+				return new Import(source, resolveFile(fileOfURL(url)), curDir);
+			}
+			return new Import(source, resolveURL(url), curDir);
+		}
+		File file = file(source, curDir);
+		String content = resolveFile(file);
+		return new Import(file.getCanonicalPath(), content, file.getParentFile());
+	}
+	
+	/* */
+	private String resolveFile(File file) throws IOException {
+		String key = file.getCanonicalPath();
+		Entry entry = cache.get(key);
+		long lastModified = file.lastModified();
+		long size = file.length();
+		if (validation == Validation.MTIME_AND_SIZE && entry != null && entry.lastModified == lastModified && entry.size == size) {
+			return hit(entry);
+		}
+		
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		return store(key, entry, bytes, lastModified, size);
+	}
+	
+	/* */
+	private String resolveURL(URL url) throws IOException {
+		String key = url.toExternalForm();
+		Entry entry = cache.get(key);
+		URLConnection urlConnection = url.openConnection();
+		if (entry != null && entry.lastModified > 0) {
+			urlConnection.setIfModifiedSince(entry.lastModified);
+		}
+		if (entry != null && urlConnection instanceof HttpURLConnection && ((HttpURLConnection)urlConnection).getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+			((HttpURLConnection)urlConnection).disconnect();
+			return hit(entry);
+		}
+		
+		byte[] bytes;
+		try (
+			InputStream inputStream = urlConnection.getInputStream();
+		) {
+			bytes = inputStream.readAllBytes();
+		}
+		return store(key, entry, bytes, urlConnection.getLastModified(), bytes.length);
+	}
+	
+	/*
+	 * Content that was read is only decoded if it differs from the cached content
+	 */
+	private String store(String key, Entry entry, byte[] bytes, long lastModified, long size) {
+		byte[] hash = hash(bytes);
+		if (entry != null && Arrays.equals(entry.hash, hash)) {
+			cache.put(key, new Entry(entry.content, lastModified, size, hash));
+			return hit(entry);
+		}
+		misses.incrementAndGet();
+		entry = new Entry(decode(bytes).toString(), lastModified, size, hash);
+		cache.put(key, entry);
+		return entry.content;
+	}
+	
+	/* */
+	private String hit(Entry entry) {
+		hits.incrementAndGet();
+		return entry.content;
+	}
+	
+	/* */
+	private static File fileOfURL(URL url) throws IOException {
+		try {
+			return Paths.get(url.toURI()).toFile();
+		}
+		catch (URISyntaxException e) {
+			throw new IOException(e);
+		}
+	}
+	
+	/* */
+	private static byte[] hash(byte[] bytes) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(bytes);
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	/**
+	 * Remove all cached imports
+	 */
+	public void clear() {
+		cache.clear();
+	}
+	
+	/**
+	 * The number of imports that were served from the cache
+	 * @return
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+	
+	/**
+	 * The number of imports that had to be (re)loaded
+	 * @return
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+}
@@ -0,0 +1,75 @@
+package org.tbee.tecl;
+
+/*-
+ * #%L
+ * TECL
+ * %%
+ * Copyright (C) 2020 Tom Eugelink
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Reads the imported file or URL every time it is imported.
+ * Imports are assumed to be encoded in UTF-8.
+ */
+public class DefaultImportResolver implements ImportResolver {
+
+	@Override
+	public Import resolve(String source, File curDir) throws IOException {
+		if (isURL(source)) {
+			return new Import(source, decode(readURL(new URL(source))), curDir);
+		}
+		File file = file(source, curDir);
+		return new Import(file.getCanonicalPath(), decode(Files.readAllBytes(file.toPath())), file.getParentFile());
+	}
+	
+	/* */
+	static boolean isURL(String source) {
+		return source.contains(":");
+	}
+	
+	/* */
+	static File file(String source, File curDir) {
+		return new File(curDir, source);
+	}
+	
+	/* */
+	static byte[] readURL(URL url) throws IOException {
+		try (
+			InputStream inputStream = url.openStream();
+		) {
+			return inputStream.readAllBytes();
+		}
+	}
+	
+	/* */
+	static CharSequence decode(byte[] bytes) {
+		return StandardCharsets.UTF_8.decode(ByteBuffer.wrap(bytes));
+	}
+}
@@ -0,0 +1,70 @@
+package org.tbee.tecl;
+
+/*-
+ * #%L
+ * TECL
+ * %%
+ * Copyright (C) 2020 Tom Eugelink
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Resolves the source of an @import line into its content.
+ * The resolver is set on the {@link TECLParser}; a resolver can be shared between parsers (and threads), for example to cache imports.
+ * 
+ * @see DefaultImportResolver
+ * @see CachingImportResolver
+ */
+public interface ImportResolver {
+	
+	/**
+	 * 
+	 * @param source whatever follows @import; a URL if it contains a ':', otherwise a file relative to curDir
+	 * @param curDir the directory of the importing file
+	 * @return the imported content
+	 * @throws IOException
+	 */
+	Import resolve(String source, File curDir) throws IOException;
+	
+	/**
+	 * The content of an import
+	 */
+	public static class Import {
+		final String id;
+		final CharSequence content;
+		final File curDir;
+		
+		/**
+		 * 
+		 * @param id the identity of the import, the canonical path or URL, used to detect circular imports
+		 * @param content the content
+		 * @param curDir the directory imports within this content are relative to
+		 */
+		public Import(String id, CharSequence content, File curDir) {
+			this.id = id;
+			this.content = content;
+			this.curDir = curDir;
+		}
+	}
+}
@@ -0,0 +1,309 @@
+package org.tbee.tecl;
+
+/*-
+ * #%L
+ * TECL
+ * %%
+ * Copyright (C) 2020 Tom Eugelink
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Keeps all metrics in memory, so they can be inspected or dumped as text.
+ * Lookup latencies are kept in a histogram per path, with power-of-two buckets. 
+ * To keep the memory bounded, only the first {@link #MAX_PATHS} distinct paths are tracked separately, the remaining lookups are added up under {@link #OTHER_PATHS}.
+ */
+public class InMemoryTECLMetrics implements TECLMetrics {
+	
+	/** The maximum number of paths (for lookups and conversion failures) that are tracked separately */ 
+	public static final int MAX_PATHS = 1000;
+	
+	/** The path under which all lookups beyond MAX_PATHS are recorded */
+	public static final String OTHER_PATHS = "<other>";
+	
+	private final Map<Phase, Histogram> phases = new EnumMap<>(Phase.class);
+	private final LongAdder imports = new LongAdder();
+	private final Map<String, Histogram> lookups = new ConcurrentHashMap<>();
+	private final Map<Cache, LongAdder> cacheHits = new EnumMap<>(Cache.class);
+	private final Map<Cache, LongAdder> cacheMisses = new EnumMap<>(Cache.class);
+	private final Map<String, LongAdder> conversionFailures = new ConcurrentHashMap<>();
+	
+	public InMemoryTECLMetrics() {
+		// the enum maps are filled up front, so they are only read afterwards and need no synchronization
+		for (Phase phase : Phase.values()) {
+			phases.put(phase, new Histogram());
+		}
+		for (Cache cache : Cache.values()) {
+			cacheHits.put(cache, new LongAdder());
+			cacheMisses.put(cache, new LongAdder());
+		}
+	}
+	
+	// =====================================
+	// record
+	
+	@Override
+	public void phase(Phase phase, long nanos) {
+		phases.get(phase).record(nanos);
+	}
+	
+	@Override
+	public void imported(String id) {
+		imports.increment();
+	}
+	
+	@Override
+	public void lookup(String path, long nanos) {
+		bounded(lookups, path, Histogram::new).record(nanos);
+	}
+	
+	@Override
+	public void cache(Cache cache, boolean hit) {
+		(hit ? cacheHits : cacheMisses).get(cache).increment();
+	}
+	
+	@Override
+	public void conversionFailed(String path, String value, RuntimeException exception) {
+		bounded(conversionFailures, path, LongAdder::new).increment();
+	}
+	
+	/*
+	 * Get the entry for a path, beyond MAX_PATHS all paths share one entry 
+	 */
+	private static <T> T bounded(Map<String, T> map, String path, Supplier<T> supplier) {
+		T t = map.get(path);
+		if (t != null) {
+			return t;
+		}
+		if (map.size() >= MAX_PATHS) {
+			path = OTHER_PATHS;
+		}
+		return map.computeIfAbsent(path, p -> supplier.get());
+	}
+	
+	// =====================================
+	// query
+	
+	/**
+	 * The total time spent in a phase, over all parses
+	 * @param phase
+	 * @return
+	 */
+	public long getPhaseNanos(Phase phase) {
+		return phases.get(phase).getTotalNanos();
+	}
+	
+	/**
+	 * How often a phase was completed 
+	 * @param phase
+	 * @return
+	 */
+	public long getPhaseCount(Phase phase) {
+		return phases.get(phase).getCount();
+	}
+	
+	/**
+	 * The number of imported files and URLs, over all parses
+	 * @return
+	 */
+	public long getImportCount() {
+		return imports.sum();
+	}
+	
+	/**
+	 * The number of lookups of a path
+	 * @param path the full path from the root, as reported in the dump 
+	 * @return
+	 */
+	public long getLookupCount(String path) {
+		Histogram histogram = lookups.get(path);
+		return histogram == null ? 0 : histogram.getCount();
+	}
+	
+	/**
+	 * The number of lookups over all paths
+	 * @return
+	 */
+	public long getLookupCount() {
+		return lookups.values().stream().mapToLong(Histogram::getCount).sum();
+	}
+	
+	/**
+	 * The fraction of the times the cache was consulted and contained the answer, NaN if it was not used at all.
+	 * @param cache
+	 * @return
+	 */
+	public double getCacheHitRate(Cache cache) {
+		long hits = cacheHits.get(cache).sum();
+		long total = hits + cacheMisses.get(cache).sum();
+		return total == 0 ? Double.NaN : (double)hits / total;
+	}
+	
+	/**
+	 * The number of failed conversions of a path
+	 * @param path the full path from the root to the key 
+	 * @return
+	 */
+	public long getConversionFailureCount(String path) {
+		LongAdder failures = conversionFailures.get(path);
+		return failures == null ? 0 : failures.sum();
+	}
+	
+	/**
+	 * The number of failed conversions over all paths
+	 * @return
+	 */
+	public long getConversionFailureCount() {
+		return conversionFailures.values().stream().mapToLong(LongAdder::sum).sum();
+	}
+	
+	/**
+	 * Forget everything that was recorded so far
+	 */
+	public void reset() {
+		phases.values().forEach(Histogram::reset);
+		imports.reset();
+		lookups.clear();
+		cacheHits.values().forEach(LongAdder::reset);
+		cacheMisses.values().forEach(LongAdder::reset);
+		conversionFailures.clear();
+	}
+	
+	// =====================================
+	// dump
+	
+	/**
+	 * All metrics as readable text; lookups are sorted by path, percentiles are the upper bound of their histogram bucket.
+	 * @return
+	 */
+	public String dump() {
+		StringBuilder sb = new StringBuilder();
+		
+		sb.append("parse phases\n");
+		for (Phase phase : Phase.values()) {
+			Histogram histogram = phases.get(phase);
+			sb.append(String.format(Locale.ROOT, "  %-12s %8d x %12.3f ms total%n", phase, histogram.getCount(), histogram.getTotalNanos() / 1_000_000.0));
+		}
+		sb.append(String.format(Locale.ROOT, "imports %d%n", getImportCount()));
+		
+		sb.append(String.format(Locale.ROOT, "lookups %d%n", getLookupCount()));
+		sb.append(String.format(Locale.ROOT, "  %-40s %10s %10s %10s %10s %10s%n", "path", "count", "mean ns", "p50 ns", "p99 ns", "max ns"));
+		for (Map.Entry<String, Histogram> entry : new TreeMap<>(lookups).entrySet()) {
+			Histogram histogram = entry.getValue();
+			sb.append(String.format(Locale.ROOT, "  %-40s %10d %10d %10d %10d %10d%n", entry.getKey(), histogram.getCount(), histogram.getMeanNanos(), histogram.getPercentileNanos(0.50), histogram.getPercentileNanos(0.99), histogram.getMaxNanos()));
+		}
+		
+		sb.append("caches\n");
+		for (Cache cache : Cache.values()) {
+			sb.append(String.format(Locale.ROOT, "  %-12s %10d hits %10d misses %6.1f%% hit rate%n", cache, cacheHits.get(cache).sum(), cacheMisses.get(cache).sum(), getCacheHitRate(cache) * 100.0));
+		}
+		
+		sb.append(String.format(Locale.ROOT, "conversion failures %d%n", getConversionFailureCount()));
+		for (Map.Entry<String, LongAdder> entry : new TreeMap<>(conversionFailures).entrySet()) {
+			sb.append(String.format(Locale.ROOT, "  %-40s %10d%n", entry.getKey(), entry.getValue().sum()));
+		}
+		return sb.toString();
+	}
+	
+	@Override
+	public String toString() {
+		return dump();
+	}
+	
+	// =====================================
+	// histogram
+	
+	/*
+	 * Counts durations in power-of-two buckets; bucket i holds the durations of i bits, so [2^(i-1), 2^i) and bucket 0 holds 0.
+	 * Recording does not lock nor allocate.
+	 */
+	static class Histogram {
+		private final AtomicLongArray buckets = new AtomicLongArray(64);
+		private final LongAdder count = new LongAdder();
+		private final LongAdder totalNanos = new LongAdder();
+		private final AtomicLong maxNanos = new AtomicLong();
+		
+		void record(long nanos) {
+			nanos = Math.max(0, nanos);
+			buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(nanos));
+			count.increment();
+			totalNanos.add(nanos);
+			if (nanos > maxNanos.get()) {
+				maxNanos.accumulateAndGet(nanos, Math::max);
+			}
+		}
+		
+		long getCount() {
+			return count.sum();
+		}
+		
+		long getTotalNanos() {
+			return totalNanos.sum();
+		}
+		
+		long getMeanNanos() {
+			long count = getCount();
+			return count == 0 ? 0 : getTotalNanos() / count;
+		}
+		
+		long getMaxNanos() {
+			return maxNanos.get();
+		}
+		
+		/*
+		 * The upper bound of the bucket containing the percentile, but never more than the max
+		 */
+		long getPercentileNanos(double percentile) {
+			long count = getCount();
+			if (count == 0) {
+				return 0;
+			}
+			long threshold = (long)Math.ceil(count * percentile);
+			long seen = 0;
+			for (int bucket = 0; bucket < 64; bucket++) {
+				seen += buckets.get(bucket);
+				if (seen >= threshold) {
+					return Math.min(bucket == 0 ? 0 : (1L << bucket) - 1, getMaxNanos());
+				}
+			}
+			return getMaxNanos();
+		}
+		
+		void reset() {
+			for (int bucket = 0; bucket < 64; bucket++) {
+				buckets.set(bucket, 0);
+			}
+			count.reset();
+			totalNanos.reset();
+			maxNanos.set(0);
+		}
+	}
+}
@@ -34,19 +34,28 @@ import java.net.URI;
 import java.net.URL;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.Objects;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import org.apache.commons.text.StringEscapeUtils;
-import org.apache.commons.text.StringTokenizer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -73,23 +82,30 @@ import org.slf4j.LoggerFactory;
  * </p>
  */
 public class TECL {
-	private final static String ENV_PREFIX = "env@";
-	private final static String SYS_PREFIX = "sys@";
-
-	final Logger logger = LoggerFactory.getLogger(TECL.class);
+	final static Logger logger = LoggerFactory.getLogger(TECL.class);
+	
+	// The build-in convert functions are shared by all TECL trees, so they may not be modified
+	final static Map<Class<?>, BiFunction<String, ?, ?>> buildinConvertFunctions;
+	static {
+		Map<Class<?>, BiFunction<String, ?, ?>> convertFunctions = new HashMap<>();
+		convertFunctions.put(String.class, (s, d) -> s);
+		convertFunctions.put(Integer.class, (s, d) -> s.isBlank() ? d : Integer.valueOf(s));
+		convertFunctions.put(Long.class, (s, d) -> s.isBlank() ? d : Long.valueOf(s));
+		convertFunctions.put(BigInteger.class, (s, d) -> s.isBlank() ? d : new BigInteger(s));
+		convertFunctions.put(BigDecimal.class, (s, d) -> s.isBlank() ? d : new BigDecimal(s));
+		convertFunctions.put(Boolean.class, (s, d) -> s.isBlank() ? d : Boolean.valueOf(s));
+		convertFunctions.put(Double.class, (s, d) -> s.isBlank() ? d : Double.valueOf(s));
+		convertFunctions.put(LocalDate.class, (s, d) -> s.isBlank() ? d : LocalDate.parse(s));
+		convertFunctions.put(LocalDateTime.class, (s, d) -> s.isBlank() ? d : LocalDateTime.parse(s));
+		convertFunctions.put(URI.class, (s, d) -> s.isBlank() ? d : toRuntimeException(() -> new URI(s)));
+		convertFunctions.put(URL.class, (s, d) -> s.isBlank() ? d : toRuntimeException(() -> new URL(s)));
+		buildinConvertFunctions = Collections.unmodifiableMap(convertFunctions);
+	}
 	
-	static Map<Class<?>, BiFunction<String, ?, ?>> buildinConvertFunctions = new HashMap<>();
+	// The build-in convert functions all produce immutable values, so their results can be remembered per value 
+	final static Set<BiFunction<String, ?, ?>> memoizableConvertFunctions = Collections.newSetFromMap(new IdentityHashMap<>());
 	static {
-		buildinConvertFunctions.put(String.class, (s, d) -> s);
-		buildinConvertFunctions.put(Integer.class, (s, d) -> s.isBlank() ? d : Integer.valueOf(s));
-		buildinConvertFunctions.put(BigInteger.class, (s, d) -> s.isBlank() ? d : new BigInteger(s));
-		buildinConvertFunctions.put(BigDecimal.class, (s, d) -> s.isBlank() ? d : new BigDecimal(s));
-		buildinConvertFunctions.put(Boolean.class, (s, d) -> s.isBlank() ? d : Boolean.valueOf(s));
-		buildinConvertFunctions.put(Double.class, (s, d) -> s.isBlank() ? d : Double.valueOf(s));
-		buildinConvertFunctions.put(LocalDate.class, (s, d) -> s.isBlank() ? d : LocalDate.parse(s));
-		buildinConvertFunctions.put(LocalDateTime.class, (s, d) -> s.isBlank() ? d : LocalDateTime.parse(s));
-		buildinConvertFunctions.put(URI.class, (s, d) -> s.isBlank() ? d : toRuntimeException(() -> new URI(s)));
-		buildinConvertFunctions.put(URL.class, (s, d) -> s.isBlank() ? d : toRuntimeException(() -> new URL(s)));
+		memoizableConvertFunctions.addAll(buildinConvertFunctions.values());
 	}
 
 	static <T> T toRuntimeException(Callable<T> callable) {
@@ -134,12 +150,32 @@ public class TECL {
 		}
 	}
 
+	// =====================================
+	// path
+	
+	/**
+	 * Compile a path, like /group1/group2[4]/value, so it can be used repeatedly without being parsed again.
+	 * Compiled paths are cached, so compiling the same path again is cheap.
+	 * 
+	 * @param path
+	 * @return
+	 */
+	static public TECLPath compile(String path) {
+		return TECLPath.compile(path);
+	}
+	
+	/*
+	 * Identical to compiling key + "[" + idx + "]", but without building the string (a null key is looked up as "null")
+	 */
+	private TECLPath compile(int idx, String key) {
+		return TECLPath.compile(String.valueOf(key)).indexed(idx);
+	}
+
 	// =====================================
 	// Constructor
 	
 	public TECL(String id) {
 		this.id = id;
-		populateConvertFunctions();
 	}
 	private final String id;
 
@@ -151,6 +187,7 @@ public class TECL {
 	}
 
 	public void setParent(TECL parent, int idxInParent) {
+		checkNotFrozen();
 		this.parent = parent;
 		this.idxInParent = idxInParent;
 	}
@@ -165,13 +202,22 @@ public class TECL {
 	 * Path from root to here
 	 */
 	public String getPath() {
-		String path 
-			= (parent == null ? "" : parent.getPath())
-		    + id
-		    + (idxInParent == null ? "" : "[" + idxInParent + "]")
-			+ "/"
-		    ;
-		return path;
+		if (frozenPath != null) {
+			return frozenPath;
+		}
+		StringBuilder path = new StringBuilder();
+		appendPath(path);
+		return path.toString();
+	}
+	private void appendPath(StringBuilder path) {
+		if (parent != null) {
+			parent.appendPath(path);
+		}
+		path.append(id);
+		if (idxInParent != null) {
+			path.append("[").append(idxInParent).append("]");
+		}
+		path.append("/");
 	}
 	
 	public String createFullPathToKey(int idx, String key) {
@@ -216,28 +262,254 @@ public class TECL {
 	 * @return
 	 */
 	public List<String> keys() {
-		return new ArrayList<>(properties.keyTovaluesMap.keySet());
+		return new ArrayList<>(properties.keyTovaluesMap().keySet());
 	}
 
+	/**
+	 * Return the rows of the table as separate TECLs, each holding a copy of the values in that row.
+	 * Use rowStream() to iterate over a large table without copying.
+	 * @return
+	 */
 	public List<TECL> rows() {
-		int max = 0;
-		for (String key : properties.keyTovaluesMap.keySet()) {
-			int size = properties.keyTovaluesMap.get(key).size();
-			max = Math.max(max, size);
-		}
+		int max = rowCount();
 
 		List<TECL> tecls = new ArrayList<>();
 		for (int i = 0; i < max; i++) {
 			TECL tecl = new TECL(null);
 			tecl.setParent(this, i);
-			for (String key : properties.keyTovaluesMap.keySet()) {
+			for (String key : properties.keyTovaluesMap().keySet()) {
 				List<ValueAttibutesPair<String>> valueAttibutesPairs = properties.get(key);
-				tecl.properties.keyTovaluesMap.put(key, valueAttibutesPairs.size() <= i || valueAttibutesPairs.get(i) == null ? null : List.of(valueAttibutesPairs.get(i)));
+				tecl.properties.keyTovaluesMap().put(key, valueAttibutesPairs.size() <= i || valueAttibutesPairs.get(i) == null ? null : List.of(valueAttibutesPairs.get(i)));
 			}
 			tecls.add(tecl);
 		}
 		return tecls;
 	}
+	
+	/**
+	 * The number of rows in the table, which is the number of values of the longest column
+	 * @return
+	 */
+	public int rowCount() {
+		int max = 0;
+		for (List<ValueAttibutesPair<String>> valueAttibutesPairs : properties.keyTovaluesMap().values()) {
+			max = Math.max(max, valueAttibutesPairs.size());
+		}
+		return max;
+	}
+	
+	/**
+	 * Return a view on a row of the table
+	 * @param idx
+	 * @return
+	 */
+	public TECLRow row(int idx) {
+		return new TECLRow(this, idx);
+	}
+	
+	/**
+	 * Stream over the rows of the table. 
+	 * The rows are views that read from the columns of the table, nothing is copied.
+	 * @return
+	 */
+	public Stream<TECLRow> rowStream() {
+		return IntStream.range(0, rowCount()).mapToObj(idx -> new TECLRow(this, idx));
+	}
+	
+	/*
+	 * Get the value in a row of the table.
+	 * A plain value is converted directly, anything else (a reference, a list in the cell, a missing value) takes the regular path. 
+	 */
+	<R> R rowValue(int idx, String key, R def, Class<R> clazz) {
+		List<ValueAttibutesPair<String>> valueAttibutesPairs = properties.keyTovaluesMap().get(key);
+		BiFunction<String, R, R> convertFunction = convertFunction(clazz);
+		List<TECL> cellList = (groups.isEmpty() ? null : cellLists().get(key));
+		if (!isPlainCell(valueAttibutesPairs, idx) || convertFunction == null || (cellList != null && cellList.size() > idx)) {
+			return list(compile(idx, key), asList(def), clazz).get(0);
+		}
+		TECLMetrics metrics = getRoot().metrics;
+		if (metrics == TECLMetrics.NONE) {
+			return convertCell(valueAttibutesPairs, idx, convertFunction, def, metrics);
+		}
+		long startNanos = System.nanoTime();
+		try {
+			return convertCell(valueAttibutesPairs, idx, convertFunction, def, metrics);
+		}
+		catch (RuntimeException e) {
+			conversionFailed(metrics, this, key, cellValue(valueAttibutesPairs, idx), e);
+			throw e;
+		}
+		finally {
+			metrics.lookup(createFullPathToKey(idx, key), System.nanoTime() - startNanos);
+		}
+	}
+	
+	/*
+	 * Is the cell a plain value, so not missing and not a reference.
+	 * A compacted column only holds numbers.
+	 */
+	private boolean isPlainCell(List<ValueAttibutesPair<String>> valueAttibutesPairs, int idx) {
+		if (valueAttibutesPairs == null || idx < 0 || idx >= valueAttibutesPairs.size()) {
+			return false;
+		}
+		if (valueAttibutesPairs instanceof TECLColumn) {
+			return ((TECLColumn)valueAttibutesPairs).isPlain(idx);
+		}
+		String value = cellValue(valueAttibutesPairs, idx);
+		return value != null && !isReference(value);
+	}
+	
+	/*
+	 * The raw value of a cell, a column does not need to create a ValueAttibutesPair for that
+	 */
+	private String cellValue(List<ValueAttibutesPair<String>> valueAttibutesPairs, int idx) {
+		if (valueAttibutesPairs instanceof TECLColumn) {
+			return ((TECLColumn)valueAttibutesPairs).str(idx);
+		}
+		ValueAttibutesPair<String> valueAttibutesPair = valueAttibutesPairs.get(idx);
+		return (valueAttibutesPair == null ? null : valueAttibutesPair.value);
+	}
+	
+	/*
+	 * Convert a plain cell, a column can do that without creating a ValueAttibutesPair
+	 */
+	private <R> R convertCell(List<ValueAttibutesPair<String>> valueAttibutesPairs, int idx, BiFunction<String, R, R> convertFunction, R def, TECLMetrics metrics) {
+		if (valueAttibutesPairs instanceof TECLColumn) {
+			return ((TECLColumn)valueAttibutesPairs).convert(idx, convertFunction, def, metrics);
+		}
+		return valueAttibutesPairs.get(idx).convert(convertFunction, def, null, metrics);
+	}
+	
+	/*
+	 * The lists in the cells of this table by column key, so reading a cell does not need to build the "|key|" group id.
+	 * Collected on first use, and dropped whenever the groups change.
+	 */
+	private Map<String, List<TECL>> cellLists() {
+		Map<String, List<TECL>> cellLists = this.cellLists;
+		if (cellLists == null) {
+			cellLists = new HashMap<>();
+			for (Map.Entry<String, List<TECL>> entry : groups.keyTovaluesMap().entrySet()) {
+				String id = entry.getKey();
+				if (id.length() > 1 && id.startsWith("|") && id.endsWith("|")) {
+					cellLists.put(id.substring(1, id.length() - 1), entry.getValue());
+				}
+			}
+			if (cellLists.isEmpty()) {
+				cellLists = Collections.emptyMap();
+			}
+			this.cellLists = cellLists;
+		}
+		return cellLists;
+	}
+	private volatile Map<String, List<TECL>> cellLists = null;
+
+	// =====================================
+	// metrics
+	
+	/**
+	 * Record the cost of reading this tree, see TECLMetrics. 
+	 * The metrics are set on the root, so they apply to the whole tree. 
+	 * This is allowed on a frozen tree, because it does not change the configuration.
+	 * 
+	 * @param metrics the metrics, or TECLMetrics.NONE (the default) to record nothing
+	 * @return this
+	 */
+	public TECL metrics(TECLMetrics metrics) {
+		getRoot().metrics = (metrics == null ? TECLMetrics.NONE : metrics);
+		return this;
+	}
+	
+	/**
+	 * The metrics of the tree this TECL is part of
+	 * @return
+	 */
+	public TECLMetrics getMetrics() {
+		return getRoot().metrics;
+	}
+	private volatile TECLMetrics metrics = TECLMetrics.NONE;
+	
+	/*
+	 * Report a failed conversion, the caller rethrows the exception.
+	 * Only the value is passed, so the (often temporary) ValueAttibutesPair does not escape and can still be optimized away by the JIT.
+	 */
+	private static void conversionFailed(TECLMetrics metrics, TECL tecl, String node, String value, RuntimeException e) {
+		if (metrics != TECLMetrics.NONE) {
+			metrics.conversionFailed(tecl.getPath() + node, value, e);
+		}
+	}
+
+	// =====================================
+	// freeze
+	
+	/**
+	 * Freeze the whole tree this TECL is part of into an immutable snapshot.
+	 * The values are compacted into fixed size lists, the keys are interned and the paths are precomputed.
+	 * Any attempt to modify a frozen tree throws an IllegalStateException.
+	 * A frozen tree can be read by any number of threads without locking, as long as it is handed to those threads after it was frozen.
+	 * 
+	 * @return this
+	 */
+	public TECL freeze() {
+		TECL root = getRoot();
+		root.convertFunctionRegistry(); // reading (e.g. indexOf) must not need to create it later on
+		root.freezeNode();
+		return this;
+	}
+	
+	/**
+	 * Is the tree frozen
+	 * @return
+	 */
+	public boolean isFrozen() {
+		return frozen;
+	}
+	private volatile boolean frozen = false;
+	private String frozenPath = null;
+	
+	/*
+	 * Mark this node as frozen without visiting its content, for trees whose content is loaded lazily (see TECLBinary.map)
+	 */
+	void markFrozen() {
+		if (parent == null) {
+			convertFunctionRegistry(); // reading must not need to create it later on
+		}
+		properties.frozen = true;
+		groups.frozen = true;
+		frozen = true;
+	}
+	
+	/* */
+	private void freezeNode() {
+		if (frozen) {
+			return;
+		}
+		frozenPath = getPath();
+		properties.freeze();
+		groups.freeze();
+		cellLists = null;
+		for (List<ValueAttibutesPair<String>> valueAttibutesPairs : properties.keyTovaluesMap().values()) {
+			for (ValueAttibutesPair<String> valueAttibutesPair : valueAttibutesPairs) {
+				if (valueAttibutesPair != null && valueAttibutesPair.attributes != EMPTY_ATTRIBUTES) {
+					valueAttibutesPair.attributes.freezeNode();
+				}
+			}
+		}
+		for (List<TECL> tecls : groups.keyTovaluesMap().values()) {
+			for (TECL tecl : tecls) {
+				if (tecl != null) {
+					tecl.freezeNode();
+				}
+			}
+		}
+		frozen = true;
+	}
+	
+	/* */
+	private void checkNotFrozen() {
+		if (frozen) {
+			throw new IllegalStateException(getPath() + " is frozen and cannot be modified");
+		}
+	}
 
 	// =====================================
 	// get
@@ -265,7 +537,20 @@ public class TECL {
 	 * @return a list of found values
 	 */
 	public <R> R get(String path, R def, Class<R> clazz) {
-		List<R> list = list(path, clazz);
+		return get(compile(path), def, clazz);
+	}
+
+	/**
+	 * Get a value using a compiled path
+	 * 
+	 * @param <R>
+	 * @param path the compiled path the access
+	 * @param def
+	 * @param clazz the return type (also used to get appropriate convert function)
+	 * @return a list of found values
+	 */
+	public <R> R get(TECLPath path, R def, Class<R> clazz) {
+		List<R> list = list(path, Collections.emptyList(), clazz);
 		if (list.isEmpty()) {
 			return def;
 		}
@@ -282,7 +567,7 @@ public class TECL {
 	 * @return a list of found values
 	 */
 	public <R> R getUsingFunction(String path, R def, BiFunction<String, R, R> convertFunction) {
-		List<R> list = listUsingFunction(path, Arrays.asList(def), convertFunction);
+		List<R> list = listUsingFunctionView(compile(path), Arrays.asList(def), convertFunction);
 		return list.isEmpty() ? def : list.get(0);
 	}
 	
@@ -300,11 +585,62 @@ public class TECL {
 	 * @return
 	 */
 	public <R> List<R> list(String indexOfPath, String indexOfValue, String path, List<R> def, Class<R> clazz) {
-		int idx = strs(indexOfPath).indexOf(indexOfValue);
+		int idx = indexOfStr(compile(indexOfPath), indexOfValue);
 		if (idx < 0) {
 			return def;
 		}
-		return listUsingFunction(path + "[" + idx + "]", def, convertFunction(clazz));
+		return listUsingFunction(compile(path).indexed(idx), def, convertFunction(clazz));
+	}
+	
+	/*
+	 * The same as strs(path).indexOf(value), but if the path ends in plain properties (a column in a table) a hash index on that column is used.
+	 */
+	private int indexOfStr(TECLPath path, String value) {
+		if (!path.env && !path.sys && value != null) {
+			EndNode endNode = travelHierarchy(path, null);
+			if (endNode.idxs.isEmpty()) {
+				StrIndexFunction strIndexFunction = new StrIndexFunction(convertFunction(String.class));
+				TECLMetrics metrics = getRoot().metrics;
+				if (metrics != TECLMetrics.NONE) {
+					metrics.cache(TECLMetrics.Cache.VALUE_INDEX, endNode.tecl.properties.isIndexed(endNode.node, strIndexFunction));
+				}
+				int idx = endNode.tecl.properties.indexOf(endNode.node, value, strIndexFunction);
+				if (idx != NOT_INDEXABLE) {
+					return idx;
+				}
+			}
+		}
+		return listUsingFunction(path, Collections.emptyList(), convertFunction(String.class)).indexOf(value);
+	}
+	
+	/*
+	 * Indexes a property on its value as returned by strs(), so equal convert functions share the same index.
+	 * References are resolved at lookup time, so a column containing these (or empty cells) cannot be indexed. 
+	 */
+	static private class StrIndexFunction implements Function<ValueAttibutesPair<String>, Object> {
+		private final BiFunction<String, String, String> convertFunction;
+		
+		StrIndexFunction(BiFunction<String, String, String> convertFunction) {
+			this.convertFunction = convertFunction;
+		}
+		
+		@Override
+		public Object apply(ValueAttibutesPair<String> valueAttibutesPair) {
+			if (valueAttibutesPair == null || valueAttibutesPair.value == null || valueAttibutesPair.value.startsWith("$")) {
+				return NOT_INDEXABLE_VALUE;
+			}
+			return valueAttibutesPair.convert(convertFunction, null, null);
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof StrIndexFunction && ((StrIndexFunction)o).convertFunction == convertFunction;
+		}
+		
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(convertFunction);
+		}
 	}
 	
 	/**
@@ -331,6 +667,19 @@ public class TECL {
 	 * @return a list of found values
 	 */
 	public <R> List<R> list(String path, List<R> def, Class<R> clazz) {
+		return listUsingFunction(compile(path), def, convertFunction(clazz));
+	}
+	
+	/**
+	 * Get values using a compiled path
+	 * 
+	 * @param <R>
+	 * @param path the compiled path the access
+	 * @param def the value to return if nothing is found
+	 * @param clazz the return type (also used to get appropriate convert function)
+	 * @return a list of found values
+	 */
+	public <R> List<R> list(TECLPath path, List<R> def, Class<R> clazz) {
 		return listUsingFunction(path, def, convertFunction(clazz));
 	}
 	
@@ -345,15 +694,54 @@ public class TECL {
 	 * @param convertFunction the conversion function to convert properties to their end type, if you access groups this should be null
 	 * @return a list of found values
 	 */
-	@SuppressWarnings("unchecked")
 	public <R> List<R> listUsingFunction(String path, List<R> def, BiFunction<String, R, R> convertFunction) {
-		String context = this.getPath() + " -> " + path + ": ";
+		return listUsingFunction(compile(path), def, convertFunction);
+	}
+	
+	/**
+	 * Get values using a compiled path, this skips parsing the path.
+	 * 
+	 * @param <R>
+	 * @param path the compiled path the access
+	 * @param def the value to return if nothing is found
+	 * @param convertFunction the conversion function to convert properties to their end type, if you access groups this should be null
+	 * @return a list of found values
+	 */
+	public <R> List<R> listUsingFunction(TECLPath path, List<R> def, BiFunction<String, R, R> convertFunction) {
+		List<R> results = listUsingFunctionView(path, def, convertFunction);
+		
+		// Found groups are a read-only view on the tree, the caller gets a copy it can modify (converted values already are a new list)
+		return (convertFunction == null && results != null && results != def ? new ArrayList<>(results) : results);
+	}
+	
+	/*
+	 * The same as listUsingFunction, but found groups are returned as a read-only view on the tree instead of a copy, for internal use.
+	 */
+	private <R> List<R> listUsingFunctionView(TECLPath path, List<R> def, BiFunction<String, R, R> convertFunction) {
+		TECLMetrics metrics = getRoot().metrics;
+		if (metrics == TECLMetrics.NONE) {
+			return lookup(path, def, convertFunction, metrics);
+		}
+		long startNanos = System.nanoTime();
+		try {
+			return lookup(path, def, convertFunction, metrics);
+		}
+		finally {
+			metrics.lookup(path.absolute ? path.toString() : getPath() + path, System.nanoTime() - startNanos);
+		}
+	}
+	
+	/* */
+	@SuppressWarnings("unchecked")
+	private <R> List<R> lookup(TECLPath path, List<R> def, BiFunction<String, R, R> convertFunction, TECLMetrics metrics) {
+		// The context is only used for logging, so it is only build if it actually is going to be logged
+		String context = (logger.isDebugEnabled() ? this.getPath() + " -> " + path + ": " : null);
 		
 		// Specials 
-		if (path.startsWith(ENV_PREFIX)) {
+		if (path.env) {
 			return getEnv(path, convertFunction, context);
 		}
-		if (path.startsWith(SYS_PREFIX)) {
+		if (path.sys) {
 			return getSys(path, convertFunction, context);
 		}
 		
@@ -362,14 +750,12 @@ public class TECL {
 		final TECL tecl = endNode.tecl;
 		final String node = endNode.node;
 		final List<Integer> idxs = endNode.idxs;
-		context = tecl.getPath() + " -> " + path + ": ";
+		if (logger.isDebugEnabled()) context = tecl.getPath() + " -> " + path + ": ";
 		
 		// This is the last node, it may be a property, group, list or reference
 		// First get all relevant info
 		List<ValueAttibutesPair<String>> valueAttibutesPairs = tecl.properties.get(node);
-		List<String> properties = (valueAttibutesPairs == null ? null : valueAttibutesPairs.stream()
-				.map(vap -> vap == null ? null : vap.value)
-				.collect(Collectors.toList()));
+		List<String> properties = (valueAttibutesPairs == null ? null : values(valueAttibutesPairs));
 		if (logger.isDebugEnabled()) logger.debug(context + "Properties = " + properties);
 		List<TECL> groups = tecl.groups.get(node); 
 		if (logger.isDebugEnabled()) logger.debug(context + "Groups = " + groups);
@@ -386,7 +772,7 @@ public class TECL {
 		}
 		else {
 			if (logger.isDebugEnabled()) logger.debug(context + "There is a convert function, so the last token must be properties.");			
-			results = resolveFinalProperty(node, properties, list, idx, convertFunction, def, context);
+			results = resolveFinalProperty(tecl, node, valueAttibutesPairs, properties, list, idx, convertFunction, def, context, metrics);
 		}	
 		if (logger.isDebugEnabled()) logger.debug(context + "Results: " + results);
 
@@ -399,55 +785,50 @@ public class TECL {
 	}
 
 	/* */
-	private <R> List<R> getSys(String path, BiFunction<String, R, R> convertFunction, String context) {
-		String sys = path.substring(SYS_PREFIX.length());
-		R result = convertFunction.apply(System.getProperty(sys), null);
+	private <R> List<R> getSys(TECLPath path, BiFunction<String, R, R> convertFunction, String context) {
+		R result = convertFunction.apply(System.getProperty(path.variable), null);
 		if (logger.isDebugEnabled()) logger.debug(context + "sys path, result = " + result);
 		return Arrays.asList(result);
 	}
 
 	/* */
-	private <R> List<R> getEnv(String path, BiFunction<String, R, R> convertFunction, String context) {
-		String env = path.substring(ENV_PREFIX.length());
-		R result = convertFunction.apply(System.getenv(env), null);
+	private <R> List<R> getEnv(TECLPath path, BiFunction<String, R, R> convertFunction, String context) {
+		R result = convertFunction.apply(System.getenv(path.variable), null);
 		if (logger.isDebugEnabled()) logger.debug(context + "env path, result = " + result);
 		return Arrays.asList(result);
 	}
 
 	/* */
-	private EndNode travelHierarchy(String path, String context) {
+	private EndNode travelHierarchy(TECLPath path, String context) {
 
 		// Determine the starting point
 		TECL tecl = determineStartingPoint(path, context);
-		context = tecl.getPath() + " -> " + path + ": ";
+		if (logger.isDebugEnabled()) context = tecl.getPath() + " -> " + path + ": ";
 		
-		// First split into its parts
-		List<String> nodes = new ArrayList<>(new StringTokenizer(path, "/").getTokenList());
-		if (logger.isDebugEnabled()) logger.debug(context + "path tokenized: " + nodes);
+		// The path already is split into its parts
+		if (logger.isDebugEnabled()) logger.debug(context + "path tokenized: " + Arrays.toString(path.nodes));
 		
 		// step over the nodes in the path
 		String node = null;
-		List<Integer> idxs = new ArrayList<Integer>();
-		while (!nodes.isEmpty()) { 
-			
-			// Get current node
-			node = nodes.remove(0);
-			if (logger.isDebugEnabled()) logger.debug(context + "node = "  + node);
-			context = tecl.getPath() + node + ": ";
+		List<Integer> idxs = Collections.emptyList();
+		int numberOfNodes = path.size();
+		for (int nodeIdx = 0; nodeIdx < numberOfNodes; nodeIdx++) { 
 			
-			// extract the indexes from the node (if any, may be two)
-			node = extractIdxs(node, idxs);
+			// Get current node, the indexes already have been extracted (if any, may be two)
+			node = path.nodes[nodeIdx];
+			idxs = path.idxs[nodeIdx];
+			if (logger.isDebugEnabled()) context = tecl.getPath() + node + ": ";
 			if (logger.isDebugEnabled()) logger.debug(context + "node = "  + node + ", idxs = "  + idxs);
 			
 			// Is this the last token? 
 			// If so, break out, because the travel part is done (the end node is handled differently)
-			boolean lastToken = nodes.isEmpty();
+			boolean lastToken = (nodeIdx == numberOfNodes - 1);
 			if (lastToken) {
 				break;
 			}
 			
 			// Not the last token, get the properties for this node
-			List<String> properties = tecl.properties.get(node).stream().map(vap -> vap.value).collect(Collectors.toList());;
+			List<String> properties = values(tecl.properties.get(node));
 			int idx = (idxs.isEmpty() ? 0 : idxs.get(0));
 			
 			// This either is a group or a reference resolving to a group
@@ -455,8 +836,8 @@ public class TECL {
 			if (isReference(properties, idx)) {
 				
 				// it must be a list of groups at this point
-				List<TECL> tecls = resolveReference(properties, idx, notExistingGroup(idx), null, context);
-				tecl = tecls.get(0);
+				List<TECL> tecls = resolveReference(properties, idx, null, null, context);
+				tecl = (tecls == null ? notExistingGroup(idx) : tecls.get(0));
 				if (logger.isDebugEnabled()) logger.debug(context + "Resolved reference: TECL= " + tecl.getPath());
 				continue;
 			}
@@ -487,9 +868,9 @@ public class TECL {
 	}
 
 	/* */
-	private TECL determineStartingPoint(String path, String context) {
+	private TECL determineStartingPoint(TECLPath path, String context) {
 		TECL tecl = null;
-		if (path.startsWith("/")) {
+		if (path.absolute) {
 			tecl = this.getRoot();
 			if (logger.isDebugEnabled()) logger.debug(context + "start at root, tecl = " + tecl);
 		}
@@ -519,7 +900,7 @@ public class TECL {
 	}
 
 	/* */
-	private <R> List<R> resolveFinalProperty(String node, List<String> properties, List<TECL> list, Integer idx, BiFunction<String, R, R> convertFunction, List<R> def, String context) {
+	private <R> List<R> resolveFinalProperty(TECL tecl, String node, List<ValueAttibutesPair<String>> valueAttibutesPairs, List<String> properties, List<TECL> list, Integer idx, BiFunction<String, R, R> convertFunction, List<R> def, String context, TECLMetrics metrics) {
 		
 		// If there is a reference
 		if (isReference(properties, 0)) {
@@ -531,16 +912,22 @@ public class TECL {
 			
 		// If we have a list overlapping the properties, replace the properties with those in the list
 		if (idx != null && list.size() > idx && list.get(idx) != null) {
-			properties = list.get(idx).properties.get(node).stream().map(vap -> vap.value).collect(Collectors.toList());
-			if (logger.isDebugEnabled()) logger.debug(context + "There is an overlapping list, replaced properties with its contents. Properties = " + properties);
+			valueAttibutesPairs = list.get(idx).properties.get(node);
+			if (logger.isDebugEnabled()) logger.debug(context + "There is an overlapping list, replaced properties with its contents. Properties = " + valueAttibutesPairs);
+		}
+		
+		// A column converts its cells without creating ValueAttibutesPairs
+		if (valueAttibutesPairs instanceof TECLColumn && (idx == null || idx < valueAttibutesPairs.size())) {
+			return resolveFinalCells(tecl, node, (TECLColumn)valueAttibutesPairs, idx, convertFunction, def, context, metrics);
 		}
 		
 		// Apply the index
-		properties = optionallyApplyIdx(context, properties, idx);
+		valueAttibutesPairs = optionallyApplyIdx(context, valueAttibutesPairs, idx);
 	
 		// Convert to end value
-		List<R> results = new ArrayList<R>();
-		for (String property : properties) {
+		List<R> results = new ArrayList<R>(valueAttibutesPairs.size());
+		for (ValueAttibutesPair<String> valueAttibutesPair : valueAttibutesPairs) {
+			String property = (valueAttibutesPair == null ? null : valueAttibutesPair.value);
 			
 			// But each property can be a reference again
 			if (isReference(property)) {
@@ -553,9 +940,14 @@ public class TECL {
 			else {
 				
 				// Convert property to end type
-				property = sanatizeString(property);
-				R result = convertFunction.apply(property, def == null || def.isEmpty() ? null : def.get(0));
-				if (logger.isDebugEnabled()) logger.debug(context + "Property converted: " + property + " -> "  + result);
+				R result;
+				try {
+					result = valueAttibutesPair.convert(convertFunction, def == null || def.isEmpty() ? null : def.get(0), context, metrics);
+				}
+				catch (RuntimeException e) {
+					conversionFailed(metrics, tecl, node, valueAttibutesPair.value, e);
+					throw e;
+				}
 				results.add(result);
 			}
 		};
@@ -563,28 +955,80 @@ public class TECL {
 	}
 
 	/*
-	 * 
+	 * The same as the conversion in resolveFinalProperty, but for the cells of a column, like rowValue does
 	 */
-	private String extractIdxs(String node, List<Integer> idxs) {
-		idxs.clear();
-		while (node.contains("[")) {
-			int startIdx = node.indexOf("[");
-			int endIdx = node.indexOf("]");
-			String idxString = node.substring(startIdx + 1,endIdx);
-			Integer idx = idxString.trim().isEmpty() ? null : Integer.parseInt(idxString);
-			idxs.add(idx);
-			String remainingIdx = node.substring(endIdx + 1);
-			node = node.substring(0, startIdx) + remainingIdx;				
+	private <R> List<R> resolveFinalCells(TECL tecl, String node, TECLColumn column, Integer idx, BiFunction<String, R, R> convertFunction, List<R> def, String context, TECLMetrics metrics) {
+		int from = (idx == null ? 0 : idx);
+		int to = (idx == null ? column.size() : idx + 1);
+		List<R> results = new ArrayList<R>(to - from);
+		for (int cellIdx = from; cellIdx < to; cellIdx++) {
+			
+			// But each cell can be a reference
+			if (column.isReference(cellIdx)) {
+				String property = column.str(cellIdx);
+				if (logger.isDebugEnabled()) logger.debug(context + "Property is a reference: " + property);
+				List<R> varResult = resolveReference(property, null, convertFunction, context);
+				results.addAll(varResult);
+				continue;
+			}
+			
+			// Convert cell to end type
+			try {
+				results.add(column.convert(cellIdx, convertFunction, def == null || def.isEmpty() ? null : def.get(0), metrics));
+			}
+			catch (RuntimeException e) {
+				conversionFailed(metrics, tecl, node, column.str(cellIdx), e);
+				throw e;
+			}
+		}
+		return results;
+	}
+
+	/* */
+	private List<String> values(List<ValueAttibutesPair<String>> valueAttibutesPairs) {
+		return new ValuesView(valueAttibutesPairs);
+	}
+	
+	/*
+	 * A read-only view that maps the pairs to their values on access, instead of copying them into a new list.
+	 */
+	static private class ValuesView extends AbstractList<String> implements RandomAccess {
+		private final List<ValueAttibutesPair<String>> valueAttibutesPairs;
+		
+		ValuesView(List<ValueAttibutesPair<String>> valueAttibutesPairs) {
+			this.valueAttibutesPairs = valueAttibutesPairs;
+		}
+		
+		@Override
+		public String get(int idx) {
+			if (valueAttibutesPairs instanceof TECLColumn) {
+				return ((TECLColumn)valueAttibutesPairs).str(idx); // without creating a pair
+			}
+			ValueAttibutesPair<String> valueAttibutesPair = valueAttibutesPairs.get(idx);
+			return valueAttibutesPair == null ? null : valueAttibutesPair.value;
+		}
+		
+		/*
+		 * Is the value a reference; a column can tell without creating the value
+		 */
+		boolean isReference(int idx) {
+			if (valueAttibutesPairs instanceof TECLColumn) {
+				return ((TECLColumn)valueAttibutesPairs).isReference(idx);
+			}
+			String value = get(idx);
+			return value != null && value.startsWith("$");
+		}
+		
+		@Override
+		public int size() {
+			return valueAttibutesPairs.size();
 		}
-		return node;
 	}
 	
 	/* */
 	private <R> List<R> optionallyApplyIdx(String context, List<R> list, Integer idx) {
 		if (idx != null && list.size() > idx) {
-			R result = list.get(idx);
-			list = new ArrayList<R>();
-			list.add(result);
+			list = Collections.singletonList(list.get(idx));
 			if (logger.isDebugEnabled()) logger.debug(context + "Limit to idx = " + idx + ", result: " + list);
 		}
 		return list;
@@ -592,6 +1036,9 @@ public class TECL {
 	
 	/* */
 	private boolean isReference(List<String> properties, int idx) {
+		if (properties instanceof ValuesView) {
+			return properties.size() > idx && ((ValuesView)properties).isReference(idx);
+		}
 		return properties != null // 
 		    && properties.size() > idx // 
 		    && properties.get(idx) != null // 
@@ -616,7 +1063,7 @@ public class TECL {
 	private <T, R> T resolveReference(String var, List<R> def, BiFunction<String, R, R> convertFunction, String context) {
 		if (logger.isDebugEnabled()) logger.debug(context + "Found reference: " + var);
 		var = var.substring(1); // strip "$"
-		T t = (T)listUsingFunction(var, def, convertFunction);
+		T t = (T)listUsingFunctionView(compile(var), def, convertFunction);
 		if (logger.isDebugEnabled()) logger.debug(context + "Resolved reference: " + var + " -> " + t);
 		return t;
 	}
@@ -624,14 +1071,16 @@ public class TECL {
 	// =====================================
 	// properties
 	
-	private class ValueAttibutesPair<T> {
-		T value;
-		TECL attributes;
+	class ValueAttibutesPair<T> {
+		final T value;
+		final TECL attributes;
 		
 		ValueAttibutesPair(T value, TECL attributes) {
 			this.value = value;
 			this.attributes = attributes;
-			this.attributes.convertFunctions = TECL.this.getRoot().convertFunctions; // use the convertFunctions from the official TECL tree
+			if (attributes != EMPTY_ATTRIBUTES) { // the shared empty attributes have no values to convert
+				this.attributes.convertFunctions = TECL.this.getRoot().convertFunctionRegistry(); // use the convertFunctions from the official TECL tree
+			}
 		}
 		ValueAttibutesPair(T value, List<Attribute> attributes) {
 			this(value, convertToTECL(attributes));
@@ -640,6 +1089,57 @@ public class TECL {
 			this(value, EMPTY_ATTRIBUTES);
 		}	
 		
+		/*
+		 * Convert the value to the end type. 
+		 * The result of a build-in convert function is remembered, so the next access does not need to sanitize and convert again.
+		 * Setting or clearing a property replaces the ValueAttibutesPair, so that automatically invalidates the remembered value.
+		 */
+		<R> R convert(BiFunction<String, R, R> convertFunction, R def, String context) {
+			return convert(convertFunction, def, context, TECLMetrics.NONE);
+		}
+		@SuppressWarnings("unchecked")
+		<R> R convert(BiFunction<String, R, R> convertFunction, R def, String context, TECLMetrics metrics) {
+			Converted converted = this.converted;
+			if (converted != null && converted.convertFunction == convertFunction) {
+				if (logger.isDebugEnabled()) logger.debug(context + "Property already converted: " + value + " -> "  + converted.value);
+				metrics.cache(TECLMetrics.Cache.CONVERSION, true);
+				return (R)converted.value;
+			}
+			if (metrics != TECLMetrics.NONE && memoizableConvertFunctions.contains(convertFunction)) {
+				metrics.cache(TECLMetrics.Cache.CONVERSION, false);
+			}
+			
+			String property = (sanitized != null ? sanitized : sanatizeString((String)value));
+			R result = convertFunction.apply(property, def);
+			if (logger.isDebugEnabled()) logger.debug(context + "Property converted: " + property + " -> "  + result);
+			
+			// Only remember values that do not depend on the default
+			if (result != null && result != def && memoizableConvertFunctions.contains(convertFunction)) {
+				remember(new Converted(convertFunction, result));
+			}
+			return result;
+		}
+		Converted converted = null; // Converted is immutable, so it can be safely shared between threads
+		
+		/*
+		 * Remember a converted value, TECLColumn also keeps it in the column
+		 */
+		void remember(Converted converted) {
+			this.converted = converted;
+		}
+		
+		/*
+		 * Sanitize the value now, instead of on every read (see TECLParser.sanitizeOnParse).
+		 * The raw value is kept for raw().
+		 */
+		ValueAttibutesPair<T> presanitize() {
+			if (value != null) {
+				sanitized = sanatizeString((String)value);
+			}
+			return this;
+		}
+		String sanitized = null;
+		
 		@Override
 		public boolean equals(Object o) {
 			if (o == this) {
@@ -651,11 +1151,25 @@ public class TECL {
 			return value.equals(((ValueAttibutesPair)o).value);
 		}
 		
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(value);
+		}
+		
 		@Override
 		public String toString() {
 			return "" + value + (attributes == EMPTY_ATTRIBUTES ? "" : attributes.toString());
 		}
 	}
+	static class Converted {
+		final BiFunction<String, ?, ?> convertFunction;
+		final Object value;
+		
+		Converted(BiFunction<String, ?, ?> convertFunction, Object value) {
+			this.convertFunction = convertFunction;
+			this.value = value;
+		}
+	}
 	static private TECL convertToTECL(List<Attribute> attributes) {
 		if (attributes == null || attributes.isEmpty()) {
 			return EMPTY_ATTRIBUTES;
@@ -664,7 +1178,7 @@ public class TECL {
 		attributes.forEach(a -> tecl.setProperty(a.key, a.value, null)); // Do we need to support multiple attributes (x=0 x=1 x=2 using something like list("x").size as index (1st parameter)? 
 		return tecl;
 	}
-	final static private TECL EMPTY_ATTRIBUTES = new TECL("");
+	final static TECL EMPTY_ATTRIBUTES = new TECL("");
 	
 	
 	final IndexedValues<ValueAttibutesPair<String>> properties = new IndexedValues<>();
@@ -701,6 +1215,40 @@ public class TECL {
 		properties.set(idx, key, new ValueAttibutesPair<String>(value, attributes), allowOverwrite);
 	}	
 	
+	/*
+	 * Set an indexed property value, optionally sanitizing it right away
+	 */
+	void setProperty(int idx, String key, String value, boolean allowOverwrite, List<Attribute> attributes, boolean presanitize) {
+		ValueAttibutesPair<String> valueAttibutesPair = new ValueAttibutesPair<String>(value, attributes);
+		properties.set(idx, key, presanitize ? valueAttibutesPair.presanitize() : valueAttibutesPair, allowOverwrite);
+	}	
+	
+	/*
+	 * Set a cell of a table. 
+	 * The cells of a column are stored in a TECLColumn, instead of as a list of ValueAttibutesPairs.
+	 */
+	void setTableData(int idx, String key, String value, boolean presanitize) {
+		if (properties.count(key) == 0) {
+			properties.keyTovaluesMap().put(key, new TECLColumn(this));
+		}
+		ValueAttibutesPair<String> valueAttibutesPair = new ValueAttibutesPair<String>(value);
+		properties.set(idx, key, presanitize ? valueAttibutesPair.presanitize() : valueAttibutesPair, false);
+	}
+	
+	/*
+	 * If the property is a table column, store it as primitives of the type (if possible).
+	 * This is done by the schema, which knows the type. 
+	 */
+	void compactTableColumn(String key, Class<?> clazz) {
+		if (frozen) {
+			return;
+		}
+		List<ValueAttibutesPair<String>> values = properties.keyTovaluesMap().get(key);
+		if (values instanceof TECLColumn) {
+			((TECLColumn)values).compact(clazz);
+		}
+	}
+	
 	/**
 	 * Clear property. This means all values in case of an index property.
 	 * @param key
@@ -724,8 +1272,9 @@ public class TECL {
 	 * @return
 	 */
 	public int indexOf(String key, String value) {
-		return properties.indexOf(key, new ValueAttibutesPair<String>(value));		
+		return properties.indexOf(key, value, RAW_VALUE_INDEX_FUNCTION);		
 	}
+	final static Function<ValueAttibutesPair<String>, Object> RAW_VALUE_INDEX_FUNCTION = valueAttibutesPair -> (valueAttibutesPair == null ? null : valueAttibutesPair.value);
 	
 	/**
 	 * Count the number of values for the specified property
@@ -769,19 +1318,58 @@ public class TECL {
 	}
 	
 	/**
-	 * Add a custom convert function to the tecl
+	 * Add a custom convert function to the tecl.
+	 * The convert functions are owned by the root of the tree, so adding it anywhere in the tree makes it available to the whole tree.
 	 */
 	public <R> void addConvertFunction(Class<R> clazz, BiFunction<String, R, R> convertFunction) {
-		convertFunctions.put(clazz, convertFunction);
+		checkNotFrozen();
+		getRoot().convertFunctionRegistry().add(clazz, convertFunction);
 	}
 	@SuppressWarnings("unchecked")
 	public <R> BiFunction<String, R, R> convertFunction(Class<R> clazz) {
-		return (BiFunction<String, R, R>)getRoot().convertFunctions.get(clazz);
+		return (BiFunction<String, R, R>)convertFunctions().get(clazz);
 	}
+	
+	/**
+	 * Reset the convert functions to only the build-in ones
+	 */
 	public void populateConvertFunctions() {
-		convertFunctions = new HashMap<>(buildinConvertFunctions);
+		checkNotFrozen();
+		convertFunctions = null;
+	}
+	
+	/*
+	 * All convert functions available for this tree
+	 */
+	Map<Class<?>, BiFunction<String, ?, ?>> convertFunctions() {
+		ConvertFunctionRegistry convertFunctions = getRoot().convertFunctions;
+		return convertFunctions == null ? buildinConvertFunctions : convertFunctions.map;
+	}
+	
+	/*
+	 * A registry is only created when it is needed; until then the tree uses the build-in functions  
+	 */
+	private ConvertFunctionRegistry convertFunctionRegistry() {
+		if (convertFunctions == null) {
+			convertFunctions = new ConvertFunctionRegistry();
+		}
+		return convertFunctions;
+	}
+	private ConvertFunctionRegistry convertFunctions = null;
+	
+	/*
+	 * The convert functions of a tree, owned by its root and shared with the attribute TECLs.
+	 * The map is never modified, but replaced when a function is added (copy-on-write), so it can be read without locking. 
+	 */
+	static private class ConvertFunctionRegistry {
+		volatile Map<Class<?>, BiFunction<String, ?, ?>> map = buildinConvertFunctions;
+		
+		synchronized void add(Class<?> clazz, BiFunction<String, ?, ?> convertFunction) {
+			Map<Class<?>, BiFunction<String, ?, ?>> map = new HashMap<>(this.map);
+			map.put(clazz, convertFunction);
+			this.map = Collections.unmodifiableMap(map);
+		}
 	}
-	Map<Class<?>, BiFunction<String, ?, ?>> convertFunctions = null;
 	
 	/** Convenience method to return a string */
 	public String str(String key) {
@@ -794,7 +1382,7 @@ public class TECL {
 		return str(idx, key, null);
 	}
 	public String str(int idx, String key, String def) {
-		return list(key + "[" + idx + "]", asList(def), String.class).get(0);
+		return list(compile(idx, key), asList(def), String.class).get(0);
 	}
 	public List<String> strs(String key) {
 		return list(key, Collections.emptyList(), String.class);
@@ -814,7 +1402,7 @@ public class TECL {
 		return integer(idx, key, null);
 	}
 	public Integer integer(int idx, String key, Integer def) {
-		return list(key + "[" + idx + "]", asList(def), Integer.class).get(0);
+		return list(compile(idx, key), asList(def), Integer.class).get(0);
 	}
 	public List<Integer> integers(String key) {
 		return list(key, Collections.emptyList(), Integer.class);
@@ -834,7 +1422,7 @@ public class TECL {
 		return dbl(idx, key, null);
 	}
 	public Double dbl(int idx, String key, Double def) {
-		return list(key + "[" + idx + "]", asList(def), Double.class).get(0);
+		return list(compile(idx, key), asList(def), Double.class).get(0);
 	}
 	public List<Double> dbls(String key) {
 		return list(key, Collections.emptyList(), Double.class);
@@ -854,7 +1442,7 @@ public class TECL {
 		return bool(idx, key, null);
 	}
 	public Boolean bool(int idx, String key, Boolean def) {
-		return list(key + "[" + idx + "]", asList(def), Boolean.class).get(0);
+		return list(compile(idx, key), asList(def), Boolean.class).get(0);
 	}
 	public List<Boolean> bools(String key) {
 		return list(key, Collections.emptyList(), Boolean.class);
@@ -874,7 +1462,7 @@ public class TECL {
 		return bi(idx, key, null);
 	}
 	public BigInteger bi(int idx, String key, BigInteger def) {
-		return list(key + "[" + idx + "]", asList(def), BigInteger.class).get(0);
+		return list(compile(idx, key), asList(def), BigInteger.class).get(0);
 	}
 	public List<BigInteger> bis(String key) {
 		return list(key, Collections.emptyList(), BigInteger.class);
@@ -895,7 +1483,7 @@ public class TECL {
 		return bd(idx, key, null);
 	}
 	public BigDecimal bd(int idx, String key, BigDecimal def) {
-		return list(key + "[" + idx + "]", asList(def), BigDecimal.class).get(0);
+		return list(compile(idx, key), asList(def), BigDecimal.class).get(0);
 	}
 	public List<BigDecimal> bds(String key) {
 		return list(key, Collections.emptyList(), BigDecimal.class);
@@ -916,7 +1504,7 @@ public class TECL {
 		return localDate(idx, key, null);
 	}
 	public LocalDate localDate(int idx, String key, LocalDate def) {
-		return list(key + "[" + idx + "]", asList(def), LocalDate.class).get(0);
+		return list(compile(idx, key), asList(def), LocalDate.class).get(0);
 	}
 	public List<LocalDate> localDates(String key) {
 		return list(key, Collections.emptyList(), LocalDate.class);
@@ -936,7 +1524,7 @@ public class TECL {
 		return localDateTime(idx, key, null);
 	}
 	public LocalDateTime localDateTime(int idx, String key, LocalDateTime def) {
-		return list(key + "[" + idx + "]", asList(def), LocalDateTime.class).get(0);
+		return list(compile(idx, key), asList(def), LocalDateTime.class).get(0);
 	}
 	public List<LocalDateTime> localDateTimes(String key) {
 		return list(key, Collections.emptyList(), LocalDateTime.class);
@@ -956,7 +1544,7 @@ public class TECL {
 		return uri(idx, key, null);
 	}
 	public URI uri(int idx, String key, URI def) {
-		return list(key + "[" + idx + "]", asList(def), URI.class).get(0);
+		return list(compile(idx, key), asList(def), URI.class).get(0);
 	}
 	public List<URI> uris(String key) {
 		return list(key, Collections.emptyList(), URI.class);
@@ -976,7 +1564,7 @@ public class TECL {
 		return url(idx, key, null);
 	}
 	public URL url(int idx, String key, URL def) {
-		return list(key + "[" + idx + "]", asList(def), URL.class).get(0);
+		return list(compile(idx, key), asList(def), URL.class).get(0);
 	}
 	public List<URL> urls(String key) {
 		return list(key, Collections.emptyList(), URL.class);
@@ -991,6 +1579,7 @@ public class TECL {
 	// Storage
 	private String decryptKeyBase64 = null;
 	void setDecryptKeyBase64(String decryptKeyBase64) {
+		checkNotFrozen();
 		this.decryptKeyBase64 = decryptKeyBase64;
 	}
 	
@@ -1039,15 +1628,19 @@ public class TECL {
 	 * @return
 	 */
 	public TECL addGroup(String id) {
+		checkNotFrozen();
 		TECL tecl = new TECL(id, null);
 		int idx = groups.add(id, tecl);
+		cellLists = null;
 		tecl.setParent(this, idx);
 		return tecl;
 	}
 	
 	TECL setGroup(int idx, String id) {
+		checkNotFrozen();
 		TECL tecl = new TECL(id, null);
 		groups.set(idx, id, tecl, false);
+		cellLists = null;
 		tecl.setParent(this, idx);
 		return tecl;
 	}
@@ -1078,14 +1671,29 @@ public class TECL {
 	 * @return
 	 */
 	public TECL grp(int idx, String key) {
-		return listUsingFunction(key + "[" + idx + "]", notExistingGroup(idx), null).get(0);
+		TECLPath path = compile(idx, key);
+		
+		// Shortcut for the most common case: an existing direct child group 
+		if (path.size() == 1 && !path.absolute && path.idxs[0].size() == 1 && idx >= 0 && idx < this.groups.count(path.nodes[0])) {
+			TECL group = this.groups.get(idx, path.nodes[0], null);
+			if (group != null) {
+				return group;
+			}
+		}
+		
+		List<TECL> groups = listUsingFunctionView(path, null, null);
+		return groups == null ? notExistingGroup(idx) : groups.get(0);
 	}
 
 
-	private List<TECL> notExistingGroup(int idx) {
+	/*
+	 * The empty group that is returned instead of null. 
+	 * This is only created when a group actually is missing, so looking up existing groups does not pay for it.
+	 */
+	private TECL notExistingGroup(int idx) {
 		TECL group = new TECL("<group '" + createFullPathToKey(idx, id) + "' does not exist>", this);
 		group.exists = false;
-		return asList(group);
+		return group;
 	}
 	private boolean exists = true;
 	
@@ -1106,6 +1714,7 @@ public class TECL {
 	 * @param args
 	 */
 	public void addCommandLineArguments(String[] args) {
+		checkNotFrozen();
 		
 		String key = null;
 		for (String arg : args) {
@@ -1163,13 +1772,63 @@ public class TECL {
 	 * Implements an indexed store
 	 */
 	class IndexedValues<T> {
-		private final Map<String, List<T>> keyTovaluesMap = new LinkedHashMap<>();
+		private Map<String, List<T>> keyTovaluesMap = new LinkedHashMap<>();
+		private boolean frozen = false;
+		private volatile Supplier<Map<String, List<T>>> loader = null;
+		private volatile Map<String, Map<Function<T, Object>, Map<Object, Integer>>> valueIndexes = null; // key -> index function -> value -> first index, only created when indexOf is used
+		
+		/*
+		 * Content that is loaded on first access, see TECLBinary.map 
+		 */
+		void lazy(Supplier<Map<String, List<T>>> loader) {
+			this.loader = loader;
+		}
+		
+		/* 
+		 * All access to the content goes through here, so lazy content can be loaded
+		 */
+		Map<String, List<T>> keyTovaluesMap() {
+			if (loader != null) {
+				load();
+			}
+			return keyTovaluesMap;
+		}
+		private synchronized void load() {
+			if (loader != null) {
+				keyTovaluesMap = loader.get();
+				loader = null;
+			}
+		}
+		
+		/*
+		 * Compact the values into fixed size read-only lists and intern the keys.
+		 * Afterwards the store is never modified again.
+		 */
+		@SuppressWarnings("unchecked")
+		void freeze() {
+			Map<String, List<T>> frozenKeyTovaluesMap = new LinkedHashMap<>((int)(keyTovaluesMap().size() / 0.75f) + 1);
+			for (Map.Entry<String, List<T>> entry : keyTovaluesMap().entrySet()) {
+				if (entry.getValue() instanceof TECLColumn) { // already is compact
+					TECLColumn column = (TECLColumn)entry.getValue();
+					column.freeze();
+					frozenKeyTovaluesMap.put(entry.getKey().intern(), entry.getValue());
+					continue;
+				}
+				T[] values = (T[])entry.getValue().toArray();
+				frozenKeyTovaluesMap.put(entry.getKey().intern(), Collections.unmodifiableList(Arrays.asList(values)));
+			}
+			keyTovaluesMap = Collections.unmodifiableMap(frozenKeyTovaluesMap);
+			valueIndexes = null;
+			frozen = true;
+		}
 		
 		/*
 		 * Completely clear a single key; remove all values.
 		 */
 		void clear(String key) {
-			List<T> values = keyTovaluesMap.get(key);
+			checkNotFrozen();
+			dropValueIndexes(key);
+			List<T> values = keyTovaluesMap().get(key);
 			if (values != null) {
 				if (logger.isDebugEnabled()) logger.debug(getPath() + ": clear property " + key);
 				values.clear();
@@ -1180,7 +1839,9 @@ public class TECL {
 		 * Clear a single value for a single key
 		 */
 		void clear(int idx, String key) {
-			List<T> values = keyTovaluesMap.get(key);
+			checkNotFrozen();
+			dropValueIndexes(key);
+			List<T> values = keyTovaluesMap().get(key);
 			if (values != null) {
 				values.clear();
 			}
@@ -1197,12 +1858,20 @@ public class TECL {
 		 * Set a single value for a single key
 		 */
 		void set(int idx, String key, T value, boolean allowOverwrite) {
+			checkNotFrozen();
+			dropValueIndexes(key);
 			
 			// First get the list of values
-			List<T> values = keyTovaluesMap.get(key);
+			List<T> values = keyTovaluesMap().get(key);
 			if (values == null) {
 				values = new ArrayList<T>();
-				keyTovaluesMap.put(key, values);
+				keyTovaluesMap().put(key, values);
+			}
+			
+			// A table column only holds plain values, for anything else switch to a regular list
+			if (values instanceof TECLColumn && !((TECLColumn)values).canHold(value)) {
+				values = new ArrayList<T>(values);
+				keyTovaluesMap().put(key, values);
 			}
 			
 			// Check if the value can be put in
@@ -1232,7 +1901,7 @@ public class TECL {
 		 * Count the number of values of a key 
 		 */
 		int count(String key) {
-			List<T> values = keyTovaluesMap.get(key);
+			List<T> values = keyTovaluesMap().get(key);
 			if (values == null) {
 				return 0;
 			}
@@ -1253,30 +1922,108 @@ public class TECL {
 		 * String val = get(idx, "value"); // This will hold "val2";
 		 */
 		int indexOf(String key, T value) {
-			List<T> values = keyTovaluesMap.get(key);
+			List<T> values = keyTovaluesMap().get(key);
 			if (values == null) {
 				return -1;
 			}
 			return values.indexOf(value);
 		}
+		
+		/*
+		 * Find the index of a value within a key using a hash index, instead of scanning all values.
+		 * The index maps what indexFunction returns for each value to the first index holding it; a null is not indexed.
+		 * It is build on first use and dropped as soon as the key is modified.
+		 * If indexFunction returns NOT_INDEXABLE_VALUE for any value, NOT_INDEXABLE is returned and the caller must scan itself.
+		 */
+		int indexOf(String key, Object lookupValue, Function<T, Object> indexFunction) {
+			Map<Function<T, Object>, Map<Object, Integer>> indexesForKey = valueIndexes().computeIfAbsent(key, k -> new ConcurrentHashMap<>());
+			Map<Object, Integer> index = indexesForKey.get(indexFunction);
+			if (index == null) {
+				index = buildIndex(key, indexFunction);
+				indexesForKey.put(indexFunction, index);
+			}
+			if (index == NOT_INDEXABLE_INDEX) {
+				return NOT_INDEXABLE;
+			}
+			Integer idx = index.get(lookupValue);
+			return idx == null ? -1 : idx;
+		}
+		
+		/*
+		 * Is there an index for the key that indexOf can use right away
+		 */
+		boolean isIndexed(String key, Function<T, Object> indexFunction) {
+			Map<String, Map<Function<T, Object>, Map<Object, Integer>>> valueIndexes = this.valueIndexes;
+			Map<Function<T, Object>, Map<Object, Integer>> indexesForKey = (valueIndexes == null ? null : valueIndexes.get(key));
+			return indexesForKey != null && indexesForKey.containsKey(indexFunction);
+		}
+		
+		/*
+		 * The value indexes are created on first use, most stores (groups, attributes, rows) never need them
+		 */
+		private Map<String, Map<Function<T, Object>, Map<Object, Integer>>> valueIndexes() {
+			Map<String, Map<Function<T, Object>, Map<Object, Integer>>> valueIndexes = this.valueIndexes;
+			if (valueIndexes == null) {
+				synchronized (this) {
+					valueIndexes = this.valueIndexes;
+					if (valueIndexes == null) {
+						valueIndexes = new ConcurrentHashMap<>();
+						this.valueIndexes = valueIndexes;
+					}
+				}
+			}
+			return valueIndexes;
+		}
+		
+		/* */
+		private void dropValueIndexes(String key) {
+			Map<String, Map<Function<T, Object>, Map<Object, Integer>>> valueIndexes = this.valueIndexes;
+			if (valueIndexes != null) {
+				valueIndexes.remove(key);
+			}
+		}
+		private Map<Object, Integer> buildIndex(String key, Function<T, Object> indexFunction) {
+			List<T> values = keyTovaluesMap().get(key);
+			if (values == null) {
+				return Collections.emptyMap();
+			}
+			if (logger.isDebugEnabled()) logger.debug(getPath() + ": build index on " + key);
+			Map<Object, Integer> index = new HashMap<>((int)(values.size() / 0.75f) + 1);
+			for (int idx = 0; idx < values.size(); idx++) {
+				Object indexValue = indexFunction.apply(values.get(idx));
+				if (indexValue == NOT_INDEXABLE_VALUE) {
+					return NOT_INDEXABLE_INDEX;
+				}
+				if (indexValue != null) {
+					index.putIfAbsent(indexValue, idx);
+				}
+			}
+			return index; // not modified after this, so it can be shared between threads
+		}
 
 		/*
-		 * Get all values for a key
+		 * Get all values for a key.
+		 * This is a read-only view on the stored values, not a copy, so lookups do not allocate a list per call.
 		 */
 		List<T> get(String key) {
-			List<T> values = keyTovaluesMap.get(key);
+			List<T> values = keyTovaluesMap().get(key);
 			if (values == null) {
 				return Collections.emptyList();
 			}
-			values = new ArrayList<T>(values); // End users are not allowed to modify the list
-			return values;
+			if (frozen) {
+				return values; // already read-only
+			}
+			if (values instanceof TECLColumn) {
+				return values; // lookups need the column itself to read its cells without creating pairs, the properties are never handed to end users
+			}
+			return Collections.unmodifiableList(values); // End users are not allowed to modify the list
 		}		
 
 		/*
 		 * Get a single value for a key
 		 */
 		T get(int idx, String key, T def) {
-			List<T> values = keyTovaluesMap.get(key);
+			List<T> values = keyTovaluesMap().get(key);
 			if (values == null) {
 				return def;
 			}
@@ -1291,14 +2038,14 @@ public class TECL {
 		 * Get all keys
 		 */
 		List<String> getKeys() {
-			return new ArrayList<String>(keyTovaluesMap.keySet());
+			return new ArrayList<String>(keyTovaluesMap().keySet());
 		}
 		
 		/*
 		 * empty
 		 */
 		boolean isEmpty() {
-			return keyTovaluesMap.isEmpty();
+			return keyTovaluesMap().isEmpty();
 		}
 
 		/*
@@ -1306,10 +2053,14 @@ public class TECL {
 		 */
 		@Override
 		public String toString() {
-			return keyTovaluesMap.toString();
+			return keyTovaluesMap().toString();
 		}
 	}
 	
+	final static int NOT_INDEXABLE = -2;
+	final static Object NOT_INDEXABLE_VALUE = new Object();
+	final static Map<Object, Integer> NOT_INDEXABLE_INDEX = Collections.unmodifiableMap(new HashMap<>());
+	
 	public static class ParseException extends RuntimeException {
 		public ParseException(Exception e) {
 			super(e);
@@ -1351,6 +2102,7 @@ public class TECL {
 
 	/**
 	 * A normal string is "...", a multiline string is """..."""
+	 * The lines are scanned in place, so the costs are linear in the length of the text. 
 	 * 
 	 * @param s
 	 * @return
@@ -1362,33 +2114,73 @@ public class TECL {
 			
 		// There is possible whitespace plus a newline after the CDATA-start,
 		// and a newline plus white spaces before the CDATA-end
-		s = s.replaceAll("^\\s*\n", "") // preceding whitespace + first newline
-			.replaceAll("\n\\s*$", ""); // last newline + trailing whitespace
-		
-		// split in lines
-		List<String> lines = s.lines().collect(Collectors.toList());
+		int firstNonWhitespace = 0;
+		while (firstNonWhitespace < s.length() && isRegexWhitespace(s.charAt(firstNonWhitespace))) {
+			firstNonWhitespace++;
+		}
+		int start = s.lastIndexOf('\n', firstNonWhitespace - 1) + 1; // preceding whitespace + first newline
+		int lastNonWhitespace = s.length() - 1;
+		while (lastNonWhitespace >= start && isRegexWhitespace(s.charAt(lastNonWhitespace))) {
+			lastNonWhitespace--;
+		}
+		int end = s.indexOf('\n', lastNonWhitespace + 1); // last newline + trailing whitespace
+		if (end < 0) {
+			end = s.length();
+		}
 		
 		// determine the minimal number of whitespaces prefixing any of the lines
-		int numberOfWhitespaceMin = Integer.MAX_VALUE;		        
-		for (String line : lines) {
+		int numberOfWhitespaceMin = Integer.MAX_VALUE;
+		for (int lineStart = start; lineStart < end; lineStart = nextLineStart(s, lineStart, end)) {
+			int lineEnd = lineEnd(s, lineStart, end);
 		    int numberOfWhitespace = 0;		        
-		    while (Character.isWhitespace(line.charAt(0))) {
-		    	line = line.substring(1);
+		    while (lineStart + numberOfWhitespace < lineEnd && Character.isWhitespace(s.charAt(lineStart + numberOfWhitespace))) {
 		    	numberOfWhitespace++;
 		    }
+		    if (lineStart + numberOfWhitespace == lineEnd) {
+		    	continue; // an empty line does not determine the indentation
+		    }
 		    if (numberOfWhitespace < numberOfWhitespaceMin) {
 		    	numberOfWhitespaceMin = numberOfWhitespace;
 		    }
 		}
 		
 		// strip that number of whitespace from each line
-		int numberOfWhitespaceMinFinal = numberOfWhitespaceMin;
-		s = lines.stream()
-			.map((line) -> line.substring(numberOfWhitespaceMinFinal))
-			.collect(Collectors.joining("\n"));
+		StringBuilder stringBuilder = new StringBuilder(end - start);
+		for (int lineStart = start; lineStart < end; lineStart = nextLineStart(s, lineStart, end)) {
+			int lineEnd = lineEnd(s, lineStart, end);
+			if (lineStart > start) {
+				stringBuilder.append('\n');
+			}
+			if (lineEnd - lineStart > numberOfWhitespaceMin) {
+				stringBuilder.append(s, lineStart + numberOfWhitespaceMin, lineEnd);
+			}
+		}
 		
 		// done
-		return s;
+		return stringBuilder.toString();
+	}
+	
+	/* The characters matching \\s in a regular expression */
+	static private boolean isRegexWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+	}
+	
+	/* The end of the line starting at lineStart, lines end like in String.lines() */
+	static private int lineEnd(String s, int lineStart, int end) {
+		int lineEnd = lineStart;
+		while (lineEnd < end && s.charAt(lineEnd) != '\n' && s.charAt(lineEnd) != '\r') {
+			lineEnd++;
+		}
+		return lineEnd;
+	}
+	
+	/* The start of the line after the one starting at lineStart */
+	static private int nextLineStart(String s, int lineStart, int end) {
+		int lineEnd = lineEnd(s, lineStart, end);
+		if (lineEnd < end && s.charAt(lineEnd) == '\r' && lineEnd + 1 < end && s.charAt(lineEnd + 1) == '\n') {
+			return lineEnd + 2;
+		}
+		return lineEnd + 1;
 	}
 
 	/*
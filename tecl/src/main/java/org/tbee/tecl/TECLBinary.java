@@ -0,0 +1,669 @@
+package org.tbee.tecl;
+
+/*-
+ * #%L
+ * TECL
+ * %%
+ * Copyright (C) 2020 Tom Eugelink
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tbee.tecl.TECL.Attribute;
+
+/**
+ * A compact binary form of a parsed TECL tree, that can be loaded without lexing or parsing.
+ * 
+ * The tree is stored as it is after parsing: conditions have been applied, but values are raw, so references are resolved and values are decrypted when they are read, as usual.
+ * All strings (keys, ids and values) are stored once in a string table, and the tree refers to them by index.
+ * Everything is addressed by position, so a tree can also be memory mapped and only decoded where it is accessed, see map.
+ * 
+ * A compiled file (.teclc) additionally has a header listing the parameters and the files it was compiled from, so it can be checked if it still is up to date.
+ * The header ends with the length and CRC32 of the tree, so a truncated or otherwise damaged file is detected before anything is decoded.
+ * A mapped tree only has its length checked, checking the CRC32 would read every page of the file.
+ * See TECLParser.compile and TECLParser.findAndParse.
+ */
+public class TECLBinary {
+	static private final Logger logger = LoggerFactory.getLogger(TECLBinary.class);
+	
+	static private final int MAGIC = 0x5445434C; // TECL
+	static private final int FORMAT_VERSION = 3;
+	static private final int NONE = -1;
+	
+	/**
+	 * Write the tree to the output stream.
+	 * 
+	 * @param tecl
+	 * @param outputStream
+	 * @throws IOException
+	 */
+	static public void write(TECL tecl, OutputStream outputStream) throws IOException {
+		write(tecl, Collections.emptyMap(), Collections.emptyList(), outputStream);
+	}
+	
+	/**
+	 * Read a tree that was written using write (or TECLParser.compile) completely into memory.
+	 * 
+	 * @param inputStream
+	 * @return
+	 * @throws IOException
+	 */
+	static public TECL read(InputStream inputStream) throws IOException {
+		ByteBuffer byteBuffer = ByteBuffer.wrap(inputStream.readAllBytes());
+		readHeader(byteBuffer, true);
+		TECL tecl = new TECL("");
+		readNode(new Tree(byteBuffer), tecl);
+		return tecl;
+	}
+	
+	/**
+	 * Memory map a file that was written using write (or TECLParser.compile). 
+	 * Groups and values are only decoded when they are accessed, and then kept, so the heap usage is proportional to what is actually read.
+	 * The mapped tree is frozen. 
+	 * Only the length of the tree is checked when mapping, so a damaged file fails when the damaged part is accessed.
+	 * 
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 */
+	static public TECL map(Path path) throws IOException {
+		ByteBuffer byteBuffer = map(path.toFile());
+		readHeader(byteBuffer, false);
+		TECL tecl = new TECL("");
+		mapRoot(new Tree(byteBuffer), tecl);
+		return tecl;
+	}
+	
+	// ======================================
+	// COMPILED FILE
+	
+	/*
+	 * The compiled file of a configuration file: config.tecl -> config.teclc
+	 */
+	static File compiledFile(File file) {
+		String name = file.getName();
+		return new File(file.getAbsoluteFile().getParentFile(), (name.endsWith(".tecl") ? name + "c" : name + ".teclc"));
+	}
+	
+	/*
+	 * Write the header and the tree.
+	 * The dependencies are the configuration file and all files it imports, changing any of them makes the compiled file stale.
+	 */
+	static void write(TECL tecl, Map<String, String> parameters, List<File> dependencies, OutputStream outputStream) throws IOException {
+		Output output = new Output();
+		output.putInt(MAGIC);
+		output.putInt(FORMAT_VERSION);
+		
+		// header
+		output.putInt(parameters.size());
+		for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+			output.putString(parameter.getKey());
+			output.putString(parameter.getValue());
+		}
+		output.putInt(dependencies.size());
+		for (File dependency : dependencies) {
+			output.putString(dependency.getAbsolutePath());
+			output.putLong(dependency.lastModified());
+			output.putLong(dependency.length());
+		}
+		
+		// the tree is positioned relative to its start 
+		Output treeOutput = new Output();
+		writeTree(tecl, treeOutput);
+		CRC32 crc32 = new CRC32();
+		crc32.update(treeOutput.bytes, 0, treeOutput.size);
+		output.putInt(treeOutput.size);
+		output.putLong(crc32.getValue());
+		outputStream.write(output.bytes, 0, output.size);
+		outputStream.write(treeOutput.bytes, 0, treeOutput.size);
+		outputStream.flush();
+	}
+	
+	/*
+	 * Load the compiled file into the (empty) root, if it is up to date: same format, same parameters and none of its dependencies changed.
+	 * Returns false if it is not, or if it is truncated or damaged, and then the root has not been touched.
+	 * If mapped, the content is decoded when accessed, and the root is frozen. Only the length is checked then, not the CRC32.
+	 */
+	static boolean readCompiled(File compiledFile, Map<String, String> parameters, TECL root, boolean mapped) throws IOException {
+		ByteBuffer byteBuffer = (mapped ? map(compiledFile) : ByteBuffer.wrap(Files.readAllBytes(compiledFile.toPath())));
+		if (byteBuffer.remaining() < 8 || byteBuffer.getInt() != MAGIC || byteBuffer.getInt() != FORMAT_VERSION) {
+			if (logger.isDebugEnabled()) logger.debug(compiledFile + " has a different format");
+			return false;
+		}
+		
+		// header
+		Map<String, String> compiledParameters = new LinkedHashMap<>();
+		for (int i = byteBuffer.getInt(); i > 0; i--) {
+			compiledParameters.put(getString(byteBuffer), getString(byteBuffer));
+		}
+		if (!compiledParameters.equals(parameters)) {
+			if (logger.isDebugEnabled()) logger.debug(compiledFile + " was compiled with different parameters: " + compiledParameters);
+			return false;
+		}
+		for (int i = byteBuffer.getInt(); i > 0; i--) {
+			File dependency = new File(getString(byteBuffer));
+			long lastModified = byteBuffer.getLong();
+			long length = byteBuffer.getLong();
+			if (!dependency.exists() || dependency.lastModified() != lastModified || dependency.length() != length) {
+				if (logger.isDebugEnabled()) logger.debug(compiledFile + " is stale, " + dependency + " changed");
+				return false;
+			}
+		}
+		if (!checkTree(byteBuffer, !mapped)) {
+			if (logger.isDebugEnabled()) logger.debug(compiledFile + " is truncated or damaged");
+			return false;
+		}
+		
+		// tree
+		Tree tree = new Tree(byteBuffer);
+		if (mapped) {
+			mapRoot(tree, root);
+		}
+		else {
+			readNode(tree, root);
+		}
+		return true;
+	}
+	
+	/* */
+	static private ByteBuffer map(File file) throws IOException {
+		try (
+			FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		) {
+			return fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size()); // stays valid after the channel is closed
+		}
+	}
+	
+	/*
+	 * Skip the magic and the header
+	 */
+	static private void readHeader(ByteBuffer byteBuffer, boolean crc) throws IOException {
+		if (byteBuffer.getInt() != MAGIC) {
+			throw new IOException("Not a binary TECL");
+		}
+		int formatVersion = byteBuffer.getInt();
+		if (formatVersion != FORMAT_VERSION) {
+			throw new IOException("Unsupported binary TECL format version " + formatVersion);
+		}
+		for (int i = byteBuffer.getInt(); i > 0; i--) {
+			getString(byteBuffer);
+			getString(byteBuffer);
+		}
+		for (int i = byteBuffer.getInt(); i > 0; i--) {
+			getString(byteBuffer);
+			byteBuffer.getLong();
+			byteBuffer.getLong();
+		}
+		if (!checkTree(byteBuffer, crc)) {
+			throw new IOException("Binary TECL is truncated or damaged");
+		}
+	}
+	
+	/*
+	 * Read the length and CRC32 that end the header, and check the tree that follows against them.
+	 * The CRC32 is optional, because it reads the whole tree, which a mapped tree avoids.
+	 */
+	static private boolean checkTree(ByteBuffer byteBuffer, boolean checkCrc) {
+		int length = byteBuffer.getInt();
+		long crc = byteBuffer.getLong();
+		if (byteBuffer.remaining() != length) {
+			return false;
+		}
+		if (!checkCrc) {
+			return true;
+		}
+		CRC32 crc32 = new CRC32();
+		crc32.update(byteBuffer.duplicate());
+		return crc32.getValue() == crc;
+	}
+	
+	// ======================================
+	// WRITE
+	
+	/*
+	 * The tree consists of: 
+	 * - string table: count, count + 1 offsets, the UTF-8 bytes of all strings
+	 * - the position of the root node
+	 * - the nodes
+	 * 
+	 * A node consists of:
+	 * - number of property keys, and per key: key, number of values, position of the values
+	 * - number of group ids, and per id: id, number of groups, position of the groups
+	 * 
+	 * Per value: the value and the position of its attributes (or NONE for both).
+	 * Attributes: count, and per attribute: key, value
+	 * Per group: the position of its node (or NONE)
+	 * 
+	 * Strings are referred to by their index in the string table, all numbers are 4 byte ints.
+	 */
+	static private void writeTree(TECL tecl, Output output) {
+		
+		// collect all strings
+		Map<String, Integer> stringToIdx = new HashMap<>();
+		List<String> strings = new ArrayList<>();
+		collectStrings(tecl, stringToIdx, strings);
+		
+		// string table
+		List<byte[]> stringBytes = new ArrayList<>(strings.size());
+		for (String string : strings) {
+			stringBytes.add(string.getBytes(StandardCharsets.UTF_8));
+		}
+		output.putInt(strings.size());
+		int offset = output.size + 4 * (strings.size() + 1);
+		for (byte[] bytes : stringBytes) {
+			output.putInt(offset);
+			offset += bytes.length;
+		}
+		output.putInt(offset);
+		for (byte[] bytes : stringBytes) {
+			output.putBytes(bytes);
+		}
+		
+		// nodes
+		int rootPos = output.reserve(4);
+		output.putIntAt(rootPos, writeNode(tecl, output, stringToIdx));
+	}
+	
+	/* */
+	static private void collectStrings(TECL tecl, Map<String, Integer> stringToIdx, List<String> strings) {
+		for (String key : tecl.properties.getKeys()) {
+			collectString(key, stringToIdx, strings);
+			for (int idx = 0; idx < tecl.count(key); idx++) {
+				String value = tecl.raw(idx, key, null);
+				if (value != null) {
+					collectString(value, stringToIdx, strings);
+					TECL attributes = tecl.attr(idx, key);
+					for (String attributeKey : attributes.keys()) {
+						collectString(attributeKey, stringToIdx, strings);
+						collectString(attributes.raw(0, attributeKey, null), stringToIdx, strings);
+					}
+				}
+			}
+		}
+		for (String id : tecl.groups.getKeys()) {
+			collectString(id, stringToIdx, strings);
+			for (int idx = 0; idx < tecl.groups.count(id); idx++) {
+				TECL group = tecl.groups.get(idx, id, null);
+				if (group != null) {
+					collectStrings(group, stringToIdx, strings);
+				}
+			}
+		}
+	}
+	
+	/* */
+	static private void collectString(String string, Map<String, Integer> stringToIdx, List<String> strings) {
+		if (string != null && !stringToIdx.containsKey(string)) {
+			stringToIdx.put(string, strings.size());
+			strings.add(string);
+		}
+	}
+	
+	/*
+	 * Returns the position of the node
+	 */
+	static private int writeNode(TECL tecl, Output output, Map<String, Integer> stringToIdx) {
+		List<String> keys = tecl.properties.getKeys();
+		List<String> ids = tecl.groups.getKeys();
+		int nodePos = output.reserve(4 + 12 * keys.size() + 4 + 12 * ids.size());
+		int pos = nodePos;
+		
+		output.putIntAt(pos, keys.size());
+		pos += 4;
+		for (String key : keys) {
+			int count = tecl.count(key);
+			int valuesPos = output.reserve(8 * count);
+			for (int idx = 0; idx < count; idx++) {
+				String value = tecl.raw(idx, key, null);
+				int attributesPos = NONE;
+				if (value != null) {
+					TECL attributes = tecl.attr(idx, key);
+					List<String> attributeKeys = attributes.keys();
+					if (!attributeKeys.isEmpty()) {
+						attributesPos = output.size;
+						output.putInt(attributeKeys.size());
+						for (String attributeKey : attributeKeys) {
+							output.putInt(stringToIdx.get(attributeKey));
+							output.putInt(stringToIdx.get(attributes.raw(0, attributeKey, null)));
+						}
+					}
+				}
+				output.putIntAt(valuesPos + 8 * idx, (value == null ? NONE : stringToIdx.get(value)));
+				output.putIntAt(valuesPos + 8 * idx + 4, attributesPos);
+			}
+			output.putIntAt(pos, stringToIdx.get(key));
+			output.putIntAt(pos + 4, count);
+			output.putIntAt(pos + 8, valuesPos);
+			pos += 12;
+		}
+		
+		output.putIntAt(pos, ids.size());
+		pos += 4;
+		for (String id : ids) {
+			int count = tecl.groups.count(id);
+			int groupsPos = output.reserve(4 * count);
+			for (int idx = 0; idx < count; idx++) {
+				TECL group = tecl.groups.get(idx, id, null);
+				output.putIntAt(groupsPos + 4 * idx, (group == null ? NONE : writeNode(group, output, stringToIdx)));
+			}
+			output.putIntAt(pos, stringToIdx.get(id));
+			output.putIntAt(pos + 4, count);
+			output.putIntAt(pos + 8, groupsPos);
+			pos += 12;
+		}
+		return nodePos;
+	}
+	
+	// ======================================
+	// READ
+	
+	/*
+	 * Copy the complete node into the TECL
+	 */
+	static private void readNode(Tree tree, int nodePos, TECL tecl) {
+		int keyCount = tree.getInt(nodePos);
+		for (int i = 0, pos = nodePos + 4; i < keyCount; i++, pos += 12) {
+			String key = tree.getString(tree.getInt(pos));
+			int count = tree.getInt(pos + 4);
+			int valuesPos = tree.getInt(pos + 8);
+			for (int idx = 0; idx < count; idx++) {
+				int valueIdx = tree.getInt(valuesPos + 8 * idx);
+				if (valueIdx != NONE) {
+					tecl.setProperty(idx, key, tree.getString(valueIdx), tree.getAttributes(tree.getInt(valuesPos + 8 * idx + 4)));
+				}
+			}
+		}
+		
+		int groupsDirectoryPos = nodePos + 4 + 12 * keyCount;
+		int idCount = tree.getInt(groupsDirectoryPos);
+		for (int i = 0, pos = groupsDirectoryPos + 4; i < idCount; i++, pos += 12) {
+			String id = tree.getString(tree.getInt(pos));
+			int count = tree.getInt(pos + 4);
+			int groupsPos = tree.getInt(pos + 8);
+			for (int idx = 0; idx < count; idx++) {
+				int groupPos = tree.getInt(groupsPos + 4 * idx);
+				if (groupPos != NONE) {
+					readNode(tree, groupPos, tecl.setGroup(idx, id));
+				}
+			}
+		}
+	}
+	
+	/* */
+	static private void readNode(Tree tree, TECL root) {
+		readNode(tree, tree.rootNodePos(), root);
+	}
+	
+	// ======================================
+	// MAP
+	
+	/* */
+	static private void mapRoot(Tree tree, TECL root) {
+		mapNode(tree, tree.rootNodePos(), root);
+	}
+	
+	/*
+	 * The node only decodes its keys and ids on first access, the values and groups are decoded when accessed
+	 */
+	static private void mapNode(Tree tree, int nodePos, TECL tecl) {
+		int keyCount = tree.getInt(nodePos);
+		int groupsDirectoryPos = nodePos + 4 + 12 * keyCount;
+		tecl.properties.lazy(() -> {
+			Map<String, List<TECL.ValueAttibutesPair<String>>> keyTovaluesMap = new LinkedHashMap<>();
+			for (int i = 0, pos = nodePos + 4; i < keyCount; i++, pos += 12) {
+				keyTovaluesMap.put(tree.getString(tree.getInt(pos)), new MappedValues(tree, tecl, tree.getInt(pos + 4), tree.getInt(pos + 8)));
+			}
+			return Collections.unmodifiableMap(keyTovaluesMap);
+		});
+		tecl.groups.lazy(() -> {
+			Map<String, List<TECL>> keyTovaluesMap = new LinkedHashMap<>();
+			int idCount = tree.getInt(groupsDirectoryPos);
+			for (int i = 0, pos = groupsDirectoryPos + 4; i < idCount; i++, pos += 12) {
+				String id = tree.getString(tree.getInt(pos));
+				keyTovaluesMap.put(id, new MappedGroups(tree, tecl, id, tree.getInt(pos + 4), tree.getInt(pos + 8)));
+			}
+			return Collections.unmodifiableMap(keyTovaluesMap);
+		});
+		tecl.markFrozen();
+	}
+	
+	/*
+	 * The values of a key, decoded on first access.
+	 * The decoded ValueAttibutesPair is kept, so repeated reads neither decode again nor lose the remembered converted value.
+	 */
+	static private class MappedValues extends AbstractList<TECL.ValueAttibutesPair<String>> implements RandomAccess {
+		private final Tree tree;
+		private final TECL tecl;
+		private final int valuesPos;
+		private final AtomicReferenceArray<TECL.ValueAttibutesPair<String>> values;
+		
+		MappedValues(Tree tree, TECL tecl, int count, int valuesPos) {
+			this.tree = tree;
+			this.tecl = tecl;
+			this.valuesPos = valuesPos;
+			this.values = new AtomicReferenceArray<>(count);
+		}
+		
+		@Override
+		public TECL.ValueAttibutesPair<String> get(int idx) {
+			TECL.ValueAttibutesPair<String> value = values.get(idx); // also checks the bounds
+			if (value != null) {
+				return value;
+			}
+			int valueIdx = tree.getInt(valuesPos + 8 * idx);
+			if (valueIdx == NONE) {
+				return null;
+			}
+			value = tecl.new ValueAttibutesPair<String>(tree.getString(valueIdx), tree.getAttributes(tree.getInt(valuesPos + 8 * idx + 4)));
+			if (!values.compareAndSet(idx, null, value)) {
+				value = values.get(idx); // another thread was first, always return the same value
+			}
+			return value;
+		}
+
+		@Override
+		public int size() {
+			return values.length();
+		}
+	}
+	
+	/*
+	 * The groups of an id, decoded on first access
+	 */
+	static private class MappedGroups extends AbstractList<TECL> implements RandomAccess {
+		private final Tree tree;
+		private final TECL parent;
+		private final String id;
+		private final int groupsPos;
+		private final AtomicReferenceArray<TECL> groups;
+		
+		MappedGroups(Tree tree, TECL parent, String id, int count, int groupsPos) {
+			this.tree = tree;
+			this.parent = parent;
+			this.id = id;
+			this.groupsPos = groupsPos;
+			this.groups = new AtomicReferenceArray<>(count);
+		}
+		
+		@Override
+		public TECL get(int idx) {
+			TECL group = groups.get(idx);
+			if (group != null) {
+				return group;
+			}
+			int groupPos = tree.getInt(groupsPos + 4 * idx);
+			if (groupPos == NONE) {
+				return null;
+			}
+			group = new TECL(id);
+			group.setParent(parent, idx);
+			mapNode(tree, groupPos, group);
+			if (!groups.compareAndSet(idx, null, group)) {
+				group = groups.get(idx); // another thread was first, always return the same group
+			}
+			return group;
+		}
+
+		@Override
+		public int size() {
+			return groups.length();
+		}
+	}
+	
+	// ======================================
+	// ENCODING
+	
+	/*
+	 * The tree part of a byte buffer, positions are relative to its start
+	 */
+	static private class Tree {
+		private final ByteBuffer byteBuffer;
+		private final int stringCount;
+		
+		Tree(ByteBuffer byteBuffer) {
+			this.byteBuffer = byteBuffer.slice();
+			this.stringCount = this.byteBuffer.getInt(0);
+		}
+		
+		/* Only absolute gets are used, so the buffer can be read by multiple threads */
+		int getInt(int pos) {
+			return byteBuffer.getInt(pos);
+		}
+		
+		/* The position of the root node is stored right after the string table */
+		int rootNodePos() {
+			return getInt(getInt(4 + 4 * stringCount));
+		}
+		
+		/* */
+		String getString(int idx) {
+			int start = getInt(4 + 4 * idx);
+			byte[] bytes = new byte[getInt(4 + 4 * (idx + 1)) - start];
+			for (int i = 0; i < bytes.length; i++) {
+				bytes[i] = byteBuffer.get(start + i);
+			}
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+		
+		/* */
+		List<Attribute> getAttributes(int attributesPos) {
+			if (attributesPos == NONE) {
+				return null;
+			}
+			int count = getInt(attributesPos);
+			Attribute[] attributes = new Attribute[count];
+			for (int i = 0; i < count; i++) {
+				attributes[i] = new Attribute(getString(getInt(attributesPos + 4 + 8 * i)), getString(getInt(attributesPos + 8 + 8 * i)));
+			}
+			return Arrays.asList(attributes);
+		}
+	}
+	
+	/* */
+	static private String getString(ByteBuffer byteBuffer) {
+		int length = byteBuffer.getInt();
+		if (length < 0 || length > byteBuffer.remaining()) { // a damaged header must not lead to a huge allocation
+			throw new BufferUnderflowException();
+		}
+		byte[] bytes = new byte[length];
+		byteBuffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	/*
+	 * A growable big-endian byte array, that allows writing at earlier (reserved) positions 
+	 */
+	static private class Output {
+		private byte[] bytes = new byte[1024];
+		private int size = 0;
+		
+		/* Returns the position of the reserved bytes */
+		int reserve(int length) {
+			ensureCapacity(length);
+			int pos = size;
+			size += length;
+			return pos;
+		}
+		
+		/* */
+		void putIntAt(int pos, int value) {
+			bytes[pos] = (byte)(value >>> 24);
+			bytes[pos + 1] = (byte)(value >>> 16);
+			bytes[pos + 2] = (byte)(value >>> 8);
+			bytes[pos + 3] = (byte)value;
+		}
+		
+		/* */
+		void putInt(int value) {
+			putIntAt(reserve(4), value);
+		}
+		
+		/* */
+		void putLong(long value) {
+			putInt((int)(value >>> 32));
+			putInt((int)value);
+		}
+		
+		/* */
+		void putBytes(byte[] value) {
+			int pos = reserve(value.length); // before referring to bytes, it may be replaced
+			System.arraycopy(value, 0, bytes, pos, value.length);
+		}
+		
+		/* */
+		void putString(String value) {
+			byte[] stringBytes = value.getBytes(StandardCharsets.UTF_8);
+			putInt(stringBytes.length);
+			putBytes(stringBytes);
+		}
+		
+		/* */
+		private void ensureCapacity(int length) {
+			if (size + length > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+			}
+		}
+	}
+}
@@ -0,0 +1,358 @@
+package org.tbee.tecl;
+
+/*-
+ * #%L
+ * TECL
+ * %%
+ * Copyright (C) 2020 Tom Eugelink
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+import java.util.function.BiFunction;
+
+/**
+ * The values of one column of a table, stored in a packed array instead of as a ValueAttibutesPair per cell.
+ * Table cells never have attributes, so the pairs are created on access, like the values of a mapped compiled file.
+ * The converted value of a cell is remembered in the column, so that does not get lost with the pair, 
+ * and convert can reuse it without creating a pair at all.
+ * 
+ * If a schema types the column as Integer, Long or Double, and all values survive a round trip through that type unchanged, 
+ * the column is stored as an int[], long[] or double[] instead of strings.
+ * The parser does this once the schema has validated the tree, see TECLSchema.validateAndCompact.
+ * Converting those to Integer, Long or Double is done directly from the primitive.
+ * Any modification turns it back into strings, a value with attributes cannot be stored and must be handled by the caller (see canHold).
+ */
+final class TECLColumn extends AbstractList<TECL.ValueAttibutesPair<String>> implements RandomAccess {
+
+	static private final BiFunction<String, ?, ?> INTEGER_CONVERT_FUNCTION = TECL.buildinConvertFunctions.get(Integer.class);
+	static private final BiFunction<String, ?, ?> LONG_CONVERT_FUNCTION = TECL.buildinConvertFunctions.get(Long.class);
+	static private final BiFunction<String, ?, ?> DOUBLE_CONVERT_FUNCTION = TECL.buildinConvertFunctions.get(Double.class);
+	
+	private final TECL tecl;
+	private String[] strs = new String[8]; // null is an empty cell
+	private String[] sanitizeds = null; // only allocated when a presanitized value differs from the raw value
+	private TECL.Converted[] converteds = null; // only allocated when a converted value is remembered
+	private int[] ints = null;
+	private long[] longs = null;
+	private double[] doubles = null;
+	private int size = 0;
+	private boolean frozen = false;
+	
+	TECLColumn(TECL tecl) {
+		this.tecl = tecl;
+	}
+	
+	/**
+	 * Can the value be stored in this column
+	 */
+	boolean canHold(Object value) {
+		if (value == null) {
+			return true;
+		}
+		TECL.ValueAttibutesPair<?> valueAttibutesPair = (TECL.ValueAttibutesPair<?>)value;
+		return valueAttibutesPair.value instanceof String && valueAttibutesPair.attributes == TECL.EMPTY_ATTRIBUTES;
+	}
+	
+	@Override
+	public TECL.ValueAttibutesPair<String> get(int idx) {
+		String value = str(idx);
+		if (value == null) {
+			return null;
+		}
+		Cell cell = new Cell(idx, value);
+		if (sanitizeds != null && idx < sanitizeds.length) {
+			cell.sanitized = sanitizeds[idx];
+		}
+		cell.converted = converted(idx);
+		return cell;
+	}
+	
+	/*
+	 * Convert the value of a non-empty cell.
+	 * A remembered or primitive value is returned without creating a pair.
+	 */
+	@SuppressWarnings("unchecked")
+	<R> R convert(int idx, BiFunction<String, R, R> convertFunction, R def, TECLMetrics metrics) {
+		if (ints != null && convertFunction == INTEGER_CONVERT_FUNCTION) {
+			return (R)Integer.valueOf(ints[idx]);
+		}
+		if (longs != null && convertFunction == LONG_CONVERT_FUNCTION) {
+			return (R)Long.valueOf(longs[idx]);
+		}
+		if (doubles != null && convertFunction == DOUBLE_CONVERT_FUNCTION) {
+			return (R)Double.valueOf(doubles[idx]);
+		}
+		TECL.Converted converted = converted(idx);
+		if (converted != null && converted.convertFunction == convertFunction) {
+			metrics.cache(TECLMetrics.Cache.CONVERSION, true);
+			return (R)converted.value;
+		}
+		return get(idx).convert(convertFunction, def, null, metrics);
+	}
+	
+	/*
+	 * The remembered converted value of a cell
+	 */
+	private TECL.Converted converted(int idx) {
+		TECL.Converted[] converteds = this.converteds;
+		return (converteds == null || idx >= converteds.length ? null : converteds[idx]);
+	}
+	
+	/*
+	 * A cell handed out by get, which remembers its converted value in the column
+	 */
+	private final class Cell extends TECL.ValueAttibutesPair<String> {
+		private final int idx;
+		
+		Cell(int idx, String value) {
+			tecl.super(value);
+			this.idx = idx;
+		}
+		
+		@Override
+		void remember(TECL.Converted converted) {
+			super.remember(converted);
+			
+			// The cell may have been changed since this pair was handed out
+			if (idx >= size || !value.equals(str(idx))) {
+				return;
+			}
+			TECL.Converted[] converteds = TECLColumn.this.converteds;
+			if (converteds == null || idx >= converteds.length) {
+				converteds = (converteds == null ? new TECL.Converted[Math.max(size, idx + 1)] : Arrays.copyOf(converteds, Math.max(size, idx + 1)));
+				TECLColumn.this.converteds = converteds;
+			}
+			converteds[idx] = converted; // Converted is immutable, so it can be safely shared between threads
+		}
+	}
+	
+	/*
+	 * Is the cell a reference, a compacted column only holds numbers
+	 */
+	boolean isReference(int idx) {
+		String[] strs = this.strs;
+		return strs != null && strs[idx] != null && strs[idx].startsWith("$");
+	}
+	
+	/*
+	 * Is the cell a plain value, so not empty and not a reference
+	 */
+	boolean isPlain(int idx) {
+		String[] strs = this.strs;
+		return strs == null || (strs[idx] != null && !strs[idx].startsWith("$"));
+	}
+	
+	/*
+	 * The raw value of a cell
+	 */
+	String str(int idx) {
+		if (idx < 0 || idx >= size) {
+			throw new IndexOutOfBoundsException("Index " + idx + " out of bounds for length " + size);
+		}
+		if (ints != null) {
+			return Integer.toString(ints[idx]);
+		}
+		if (longs != null) {
+			return Long.toString(longs[idx]);
+		}
+		if (doubles != null) {
+			return Double.toString(doubles[idx]);
+		}
+		return strs[idx];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public TECL.ValueAttibutesPair<String> set(int idx, TECL.ValueAttibutesPair<String> value) {
+		checkNotFrozen();
+		TECL.ValueAttibutesPair<String> oldValue = get(idx);
+		expand();
+		strs[idx] = (value == null ? null : value.value);
+		setSanitized(idx, value);
+		if (converteds != null && idx < converteds.length) {
+			converteds[idx] = null;
+		}
+		modCount++;
+		return oldValue;
+	}
+	
+	@Override
+	public void add(int idx, TECL.ValueAttibutesPair<String> value) {
+		checkNotFrozen();
+		if (idx != size) {
+			throw new UnsupportedOperationException("Values can only be appended to a column");
+		}
+		expand();
+		if (size == strs.length) {
+			strs = Arrays.copyOf(strs, Math.max(8, size * 2));
+		}
+		strs[size] = (value == null ? null : value.value);
+		setSanitized(size, value);
+		size++;
+		modCount++;
+	}
+	
+	/*
+	 * Remember the presanitized value, if it differs from the raw value
+	 */
+	private void setSanitized(int idx, TECL.ValueAttibutesPair<String> value) {
+		String sanitized = (value == null || value.sanitized == null || value.sanitized.equals(value.value) ? null : value.sanitized);
+		if (sanitized == null && (sanitizeds == null || idx >= sanitizeds.length)) {
+			return;
+		}
+		if (sanitizeds == null || idx >= sanitizeds.length) {
+			sanitizeds = (sanitizeds == null ? new String[strs.length] : Arrays.copyOf(sanitizeds, strs.length));
+		}
+		sanitizeds[idx] = sanitized;
+	}
+	
+	@Override
+	public void clear() {
+		checkNotFrozen();
+		strs = new String[8];
+		sanitizeds = null;
+		converteds = null;
+		ints = null;
+		longs = null;
+		doubles = null;
+		size = 0;
+		modCount++;
+	}
+	
+	/*
+	 * Release the unused capacity, for example when the tree is frozen
+	 */
+	void trimToSize() {
+		if (strs != null && strs.length > size) {
+			strs = Arrays.copyOf(strs, size);
+		}
+		if (sanitizeds != null && sanitizeds.length > size) {
+			sanitizeds = Arrays.copyOf(sanitizeds, size);
+		}
+	}
+	
+	/*
+	 * Release the unused capacity and make the column read-only.
+	 * The column itself is read-only, instead of being wrapped, so convert stays reachable.
+	 */
+	void freeze() {
+		trimToSize();
+		frozen = true;
+	}
+	
+	/* */
+	private void checkNotFrozen() {
+		if (frozen) {
+			throw new IllegalStateException(tecl.getPath() + " is frozen and cannot be modified");
+		}
+	}
+	
+	/*
+	 * Store the values as primitives, if that can be done without changing any of them.
+	 */
+	void compact(Class<?> clazz) {
+		if (strs == null || size == 0) {
+			return;
+		}
+		if (clazz == Integer.class) {
+			int[] ints = new int[size];
+			for (int idx = 0; idx < size; idx++) {
+				String str = strs[idx];
+				try {
+					ints[idx] = Integer.parseInt(str);
+				}
+				catch (NumberFormatException e) { // also covers empty cells
+					return;
+				}
+				if (!Integer.toString(ints[idx]).equals(str)) { // e.g. leading zeros or a plus sign
+					return;
+				}
+			}
+			this.ints = ints;
+			this.strs = null;
+		}
+		else if (clazz == Long.class) {
+			long[] longs = new long[size];
+			for (int idx = 0; idx < size; idx++) {
+				String str = strs[idx];
+				try {
+					longs[idx] = Long.parseLong(str);
+				}
+				catch (NumberFormatException e) { // also covers empty cells
+					return;
+				}
+				if (!Long.toString(longs[idx]).equals(str)) { // e.g. leading zeros or a plus sign
+					return;
+				}
+			}
+			this.longs = longs;
+			this.strs = null;
+		}
+		else if (clazz == Double.class) {
+			double[] doubles = new double[size];
+			for (int idx = 0; idx < size; idx++) {
+				String str = strs[idx];
+				try {
+					doubles[idx] = Double.parseDouble(str);
+				}
+				catch (NumberFormatException | NullPointerException e) { // also covers empty cells
+					return;
+				}
+				if (!Double.toString(doubles[idx]).equals(str)) { // e.g. "1" is "1.0" as a double
+					return;
+				}
+			}
+			this.doubles = doubles;
+			this.strs = null;
+		}
+	}
+	
+	/*
+	 * Is the column stored as primitives
+	 */
+	boolean isCompacted() {
+		return strs == null;
+	}
+	
+	/*
+	 * Return to storing strings, so the column can be modified
+	 */
+	private void expand() {
+		if (strs != null) {
+			return;
+		}
+		String[] strs = new String[Math.max(8, size)];
+		for (int idx = 0; idx < size; idx++) {
+			strs[idx] = str(idx);
+		}
+		this.strs = strs;
+		this.ints = null;
+		this.longs = null;
+		this.doubles = null;
+	}
+}
@@ -0,0 +1,339 @@
+package org.tbee.tecl;
+
+/*-
+ * #%L
+ * TECL
+ * %%
+ * Copyright (C) 2020 Tom Eugelink
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.tbee.tecl.antlr.TECLLexer;
+import org.tbee.tecl.antlr.TECLParser.Listener;
+
+/**
+ * A hand written recursive descent parser for the TECL grammar, calling the same listener as the ANTLR parser does.
+ * It makes the same choices as ANTLR's prediction does for valid input, including its quirks:
+ * - values consisting of multiple words are concatenated without spaces,
+ * - a multi word value stops before a word followed by '=' (the next attribute),
+ * - an empty list reuses the values of the previous list.
+ * 
+ * There is no error reporting or recovery: anything unexpected throws a ParseCancellationException,
+ * after which the caller is expected to parse the input again using ANTLR to get the proper error.
+ * Because ANTLR does not require the top level to be followed by EOF, this parser rejects any trailing tokens and leaves them to ANTLR as well.
+ */
+class TECLFastParser {
+	
+	private final List<Token> tokens = new ArrayList<>();
+	private final List<String> listValues = new ArrayList<>();
+	private Listener listener;
+	private int p = 0;
+	
+	TECLFastParser(TokenSource tokenSource) {
+		Token token;
+		do {
+			token = tokenSource.nextToken();
+			tokens.add(token);
+		} while (token.getType() != Token.EOF);
+	}
+	
+	void parse(Listener listener) {
+		this.listener = listener;
+		try {
+			configs();
+			if (type(p) != Token.EOF) {
+				throw error("expected end of input");
+			}
+		}
+		finally {
+			this.listener = null;
+		}
+	}
+	
+	// ======================================
+	// RULES
+	
+	/* NL* ( config ( NL+ config )* NL* )? */
+	private void configs() {
+		skipNewlines();
+		if (isConfigStart(type(p))) {
+			config();
+			while (type(p) == TECLLexer.NL && isConfigStart(type(skipNewlines(p)))) {
+				skipNewlines();
+				config();
+			}
+			skipNewlines();
+		}
+	}
+	
+	/* property | group | table */
+	private void config() {
+		if (type(p) == TECLLexer.PIPE) {
+			table();
+			return;
+		}
+		
+		// Both property and group start with a word and optional conditions, only a property can have attributes
+		String key = match(TECLLexer.WORD).getText();
+		if (type(p) == TECLLexer.OPARENTHESIS) {
+			attributes();
+			if (type(p) == TECLLexer.OBRACK) {
+				conditions();
+			}
+			property(key);
+			return;
+		}
+		if (type(p) == TECLLexer.OBRACK) {
+			conditions();
+		}
+		if (type(p) == TECLLexer.ASSIGN) {
+			property(key);
+		}
+		else {
+			group(key);
+		}
+	}
+
+	/* (the part after WORD attributes? conditions?) ASSIGN ( value | list | ) */
+	private void property(String key) {
+		match(TECLLexer.ASSIGN);
+		if (type(p) == TECLLexer.OBRACK) {
+			list();
+			listener.setProperty(key, listValues);
+		}
+		else if (valueEnd(p) >= 0) {
+			listener.setProperty(0, key, value());
+		}
+		else {
+			listener.setProperty(0, key, "");
+		}
+	}
+	
+	/* (the part after WORD conditions?) NL* OBRACE configs CBRACE */
+	private void group(String id) {
+		listener.startGroup(id);
+		skipNewlines();
+		match(TECLLexer.OBRACE);
+		configs();
+		match(TECLLexer.CBRACE);
+		listener.endGroup();
+	}
+	
+	/* OBRACK condition ( AND condition )* CBRACK */
+	private void conditions() {
+		match(TECLLexer.OBRACK);
+		listener.startConditions();
+		condition();
+		while (type(p) == TECLLexer.AND) {
+			p++;
+			condition();
+		}
+		match(TECLLexer.CBRACK);
+	}
+	
+	/* WORD EQUALS value */
+	private void condition() {
+		String key = match(TECLLexer.WORD).getText();
+		String comparator = match(TECLLexer.EQUALS).getText();
+		listener.addCondition(key, comparator, value());
+	}
+	
+	/* OPARENTHESIS attribute attribute* CPARENTHESIS */
+	private void attributes() {
+		match(TECLLexer.OPARENTHESIS);
+		listener.startAttributes();
+		attribute();
+		while (type(p) == TECLLexer.WORD) {
+			attribute();
+		}
+		match(TECLLexer.CPARENTHESIS);
+	}
+	
+	/* WORD EQUALS value */
+	private void attribute() {
+		String key = match(TECLLexer.WORD).getText();
+		match(TECLLexer.EQUALS);
+		listener.addAttribute(key, value());
+	}
+	
+	/* row ( NL+ row )* */
+	private void table() {
+		listener.startTable();
+		row();
+		while (type(p) == TECLLexer.NL && type(skipNewlines(p)) == TECLLexer.PIPE) {
+			while (type(p) == TECLLexer.NL) {
+				if (tokens.get(p++).getText().length() > 1) { // an empty line 
+					listener.terminateTable();
+				}
+			}
+			row();
+		}
+	}
+	
+	/* PIPE ( ( list | col_value ) PIPE )+ */
+	private void row() {
+		listener.startTableRow();
+		match(TECLLexer.PIPE);
+		do {
+			int listEnd = listEnd(p);
+			if (listEnd >= 0 && type(listEnd) == TECLLexer.PIPE) {
+				list();
+				listener.addTableData(listValues);
+			}
+			else {
+				int start = p;
+				while (type(p) != TECLLexer.PIPE && type(p) != TECLLexer.NL && type(p) != Token.EOF) {
+					p++;
+				}
+				listener.addTableData(text(start, p));
+			}
+			match(TECLLexer.PIPE);
+		} while (type(p) != TECLLexer.NL && type(p) != Token.EOF);
+	}
+	
+	/* OBRACK ( value ( COMMA value )* )? CBRACK */
+	private void list() {
+		match(TECLLexer.OBRACK);
+		if (valueEnd(p) >= 0) {
+			String value = value();
+			listValues.clear(); // only here, so an empty list keeps the previous values, like the grammar does
+			listValues.add(value);
+			while (type(p) == TECLLexer.COMMA) {
+				p++;
+				listValues.add(value());
+			}
+		}
+		match(TECLLexer.CBRACK);
+	}
+	
+	/* WORD | REFERENCE | STRING | WORD+ */
+	private String value() {
+		int end = valueEnd(p);
+		if (end < 0) {
+			throw error("expected a value");
+		}
+		String text = text(p, end);
+		p = end;
+		return text;
+	}
+	
+	// ======================================
+	// LOOKAHEAD
+	
+	/*
+	 * Returns the index after the value starting at index i, or -1 if there is no value.
+	 */
+	private int valueEnd(int i) {
+		switch (type(i)) {
+			case TECLLexer.REFERENCE:
+			case TECLLexer.STRING:
+				return i + 1;
+			case TECLLexer.WORD:
+				i++;
+				while (type(i) == TECLLexer.WORD && type(i + 1) != TECLLexer.EQUALS) {
+					i++;
+				}
+				return i;
+			default:
+				return -1;
+		}
+	}
+	
+	/*
+	 * Returns the index after the list starting at index i, or -1 if there is no list.
+	 */
+	private int listEnd(int i) {
+		if (type(i) != TECLLexer.OBRACK) {
+			return -1;
+		}
+		i++;
+		if (valueEnd(i) >= 0) {
+			i = valueEnd(i);
+			while (type(i) == TECLLexer.COMMA) {
+				i = valueEnd(i + 1);
+				if (i < 0) {
+					return -1;
+				}
+			}
+		}
+		return (type(i) == TECLLexer.CBRACK ? i + 1 : -1);
+	}
+	
+	/* */
+	private static boolean isConfigStart(int type) {
+		return type == TECLLexer.WORD || type == TECLLexer.PIPE;
+	}
+	
+	/* Returns the index of the first token from i on that is not a newline */
+	private int skipNewlines(int i) {
+		while (type(i) == TECLLexer.NL) {
+			i++;
+		}
+		return i;
+	}
+	
+	/* */
+	private void skipNewlines() {
+		p = skipNewlines(p);
+	}
+	
+	// ======================================
+	// TOKENS
+	
+	/* */
+	private int type(int i) {
+		return (i < tokens.size() ? tokens.get(i) : tokens.get(tokens.size() - 1)).getType();
+	}
+	
+	/* */
+	private Token match(int type) {
+		if (type(p) != type) {
+			throw error("expected " + TECLLexer.VOCABULARY.getDisplayName(type));
+		}
+		return tokens.get(p++);
+	}
+	
+	/*
+	 * The text of the tokens from start (inclusive) to end (exclusive), concatenated like ANTLR's getText does
+	 */
+	private String text(int start, int end) {
+		if (end - start == 1) {
+			return tokens.get(start).getText();
+		}
+		StringBuilder text = new StringBuilder();
+		for (int i = start; i < end; i++) {
+			text.append(tokens.get(i).getText());
+		}
+		return text.toString();
+	}
+	
+	/* */
+	private ParseCancellationException error(String msg) {
+		Token token = tokens.get(Math.min(p, tokens.size() - 1));
+		return new ParseCancellationException("line " + token.getLine() + ":" + token.getCharPositionInLine() + " " + msg + " at input '" + token.getText() + "'");
+	}
+}
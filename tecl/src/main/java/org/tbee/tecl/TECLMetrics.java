@@ -0,0 +1,113 @@
+package org.tbee.tecl;
+
+/*-
+ * #%L
+ * TECL
+ * %%
+ * Copyright (C) 2020 Tom Eugelink
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+/**
+ * Receives measurements of what parsing and reading configuration costs at runtime.
+ * Set an implementation on the {@link TECLParser} (or on a parsed {@link TECL}); the default {@link #NONE} ignores everything, and TECL does not even take timings for it.
+ * Implementations must be thread safe, a TECL tree can be read by many threads at the same time.
+ * 
+ * <pre>{@code
+ *     InMemoryTECLMetrics metrics = new InMemoryTECLMetrics();
+ *     TECL tecl = TECL.parser().metrics(metrics).parse(...);
+ *     ...
+ *     System.out.println(metrics.dump());
+ * }</pre>
+ * 
+ * @see InMemoryTECLMetrics
+ */
+public interface TECLMetrics {
+	
+	/**
+	 * Records nothing
+	 */
+	static final TECLMetrics NONE = new TECLMetrics() {};
+	
+	/**
+	 * The phases of a parse
+	 */
+	public enum Phase {
+		/** Reading and decoding the file, stream or compiled file */
+		READ,
+		/** Processing @version and @import lines, including reading the imported files */
+		PREPROCESS,
+		/** Lexing and parsing into the TECL tree */
+		PARSE,
+		/** Validating against the schema */
+		VALIDATE
+	}
+	
+	/**
+	 * The caches used while reading values
+	 */
+	public enum Cache {
+		/** The remembered result of converting a value using a build-in convert function */
+		CONVERSION,
+		/** The hash index on a table column, used by the lookup methods */
+		VALUE_INDEX
+	}
+	
+	/**
+	 * A phase of a parse was completed
+	 * @param phase
+	 * @param nanos
+	 */
+	default void phase(Phase phase, long nanos) {
+	}
+	
+	/**
+	 * A file or URL was imported
+	 * @param id the canonical path or URL of the import
+	 */
+	default void imported(String id) {
+	}
+	
+	/**
+	 * A value or group was looked up; a reference is also recorded as a lookup of its own.
+	 * @param path the full path from the root, including any indexes
+	 * @param nanos
+	 */
+	default void lookup(String path, long nanos) {
+	}
+	
+	/**
+	 * A cache was consulted
+	 * @param cache
+	 * @param hit
+	 */
+	default void cache(Cache cache, boolean hit) {
+	}
+	
+	/**
+	 * Converting a value to the requested type failed, the exception is thrown to the caller after this
+	 * @param path the full path from the root to the key 
+	 * @param value the raw value 
+	 * @param exception
+	 */
+	default void conversionFailed(String path, String value, RuntimeException exception) {
+	}
+}
@@ -26,32 +26,53 @@ package org.tbee.tecl;
  * #L%
  */
 
-import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
-import java.io.StringReader;
+import java.io.OutputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
+import org.antlr.v4.runtime.ANTLRErrorStrategy;
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.BaseErrorListener;
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CodePointBuffer;
+import org.antlr.v4.runtime.CodePointCharStream;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.IntStream;
 import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.atn.PredictionMode;
 import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -140,6 +161,61 @@ public class TECLParser {
 		}
 	}
 	
+	// ======================================
+	// IMPORTS
+	
+	/**
+	 * Fetch imported files and URLs concurrently using the executor, instead of one after the other.
+	 * All imports are discovered as soon as the file containing them is read, and fetched in the background. 
+	 * The lines are still processed in the same order, so the result is identical to fetching them sequentially.
+	 * The executor is not shut down by the parser.
+	 * 
+	 * @param executor the executor to fetch on, null (the default) fetches sequentially
+	 * @return
+	 */
+	public TECLParser importExecutor(Executor executor) {
+		this.importExecutor = executor;
+		return this;
+	}
+	private Executor importExecutor = null;
+	
+	/**
+	 * Use a different way of reading imported files and URLs, for example a CachingImportResolver that is shared by several parsers. 
+	 * 
+	 * @param importResolver
+	 * @return
+	 */
+	public TECLParser importResolver(ImportResolver importResolver) {
+		this.importResolver = importResolver;
+		return this;
+	}
+	private ImportResolver importResolver = new DefaultImportResolver();
+	
+	// ======================================
+	// METRICS
+	
+	/**
+	 * Record the cost of parsing, and of reading the resulting TECL, see TECLMetrics. 
+	 * 
+	 * @param metrics the metrics, or TECLMetrics.NONE (the default) to record nothing
+	 * @return
+	 */
+	public TECLParser metrics(TECLMetrics metrics) {
+		this.metrics = (metrics == null ? TECLMetrics.NONE : metrics);
+		toplevelTECL.metrics(this.metrics);
+		return this;
+	}
+	private TECLMetrics metrics = TECLMetrics.NONE;
+	
+	/*
+	 * Report a completed phase, returns the end time so it can be used as the start of the next phase 
+	 */
+	private long phaseCompleted(TECLMetrics.Phase phase, long startNanos) {
+		long nanos = System.nanoTime();
+		metrics.phase(phase, nanos - startNanos);
+		return nanos;
+	}
+	
 	// ======================================
 	// PARSE
 	
@@ -165,6 +241,7 @@ public class TECLParser {
 	 */
 	public TECL findAndParse(String filename) throws IOException {
 		InputStream inputStream = null;
+		File inputFile = null;
 		
 		// 1. system property
 		{
@@ -174,6 +251,7 @@ public class TECLParser {
 			if (inputStream == null && file != null && file.exists()) {
 				if (logger.isInfoEnabled()) logger.info("Using -D" + filename + " -> " + file.getAbsolutePath());
 				inputStream = new FileInputStream(file);
+				inputFile = file;
 			}
 		}
 		
@@ -186,6 +264,7 @@ public class TECLParser {
 			if (inputStream == null && file != null && file.exists()) {
 				if (logger.isInfoEnabled()) logger.info("Using env:" + envId + " -> " + file.getAbsolutePath());
 				inputStream = new FileInputStream(file);
+				inputFile = file;
 			}
 		}
 		
@@ -196,6 +275,7 @@ public class TECLParser {
 			if (inputStream == null && file != null && file.exists()) {
 				if (logger.isInfoEnabled()) logger.info("Using -file:./" + filename + " -> " + file.getAbsolutePath());
 				inputStream = new FileInputStream(file);
+				inputFile = file;
 			}
 		}
 		
@@ -215,6 +295,9 @@ public class TECLParser {
 			return null;
 		}
 		try {
+			if (inputFile != null && loadCompiled(inputFile)) {
+				return toplevelTECL;
+			}
 			return parse(inputStream, Charset.forName("UTF-8"));
 		}
 		finally {
@@ -236,14 +319,120 @@ public class TECLParser {
 		}
 	}
 	
+	/**
+	 * Parse the file and also write the result next to it in binary form (config.tecl -> config.teclc).
+	 * As long as the file, the files it imports and the parameters stay the same, findAndParse loads the compiled file instead of parsing the file again.
+	 * Imported URLs cannot be checked for changes, so a file importing those cannot be compiled.
+	 * 
+	 * @param file file to parse and compile
+	 * @return
+	 * @throws IOException 
+	 */
+	public TECL compile(File file, java.nio.charset.Charset charset) throws IOException {
+		
+		// parse, remembering the imports
+		TECL tecl;
+		List<String> importedIds = new ArrayList<>();
+		this.importedIds = importedIds;
+		try {
+			tecl = parse(file.toPath(), charset);
+		}
+		finally {
+			this.importedIds = null;
+		}
+		
+		// collect the files the result depends on 
+		List<File> dependencies = new ArrayList<>();
+		dependencies.add(file);
+		for (String importedId : importedIds) {
+			File importedFile = new File(importedId);
+			if (!importedFile.isAbsolute() || !importedFile.isFile()) {
+				throw new IllegalStateException("Cannot compile " + file + ", it imports " + importedId + " which is not a file");
+			}
+			dependencies.add(importedFile);
+		}
+		
+		// write to a temporary file first, so a compiled file is never seen half written
+		File compiledFile = TECLBinary.compiledFile(file);
+		File tmpFile = new File(compiledFile.getPath() + ".tmp");
+		try {
+			try (
+				OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(tmpFile));
+			) {
+				TECLBinary.write(tecl, parameters, dependencies, outputStream);
+			}
+			Files.move(tmpFile.toPath(), compiledFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(tmpFile.toPath()); // do not leave a half written file behind
+			throw e;
+		}
+		if (logger.isInfoEnabled()) logger.info("Compiled " + file.getAbsolutePath() + " -> " + compiledFile.getAbsolutePath());
+		return tecl;
+	}
+	private List<String> importedIds = null;
+	
+	/**
+	 * Memory map the compiled file used by findAndParse, instead of loading it completely.
+	 * Groups and values are then only decoded when they are accessed, which suits large configurations of which only a small part is used.
+	 * The resulting TECL is frozen.
+	 * 
+	 * @param mapCompiled
+	 * @return
+	 */
+	public TECLParser mapCompiled(boolean mapCompiled) {
+		this.mapCompiled = mapCompiled;
+		return this;
+	}
+	private boolean mapCompiled = false;
+	
+	/*
+	 * Load the compiled file next to the file, if there is one and it is up to date.
+	 * The compiled file is only a cache, so if it cannot be read the file is parsed instead.
+	 */
+	private boolean loadCompiled(File file) throws IOException {
+		File compiledFile = TECLBinary.compiledFile(file);
+		long startNanos = System.nanoTime();
+		try {
+			if (!compiledFile.exists() || !TECLBinary.readCompiled(compiledFile, parameters, toplevelTECL, mapCompiled)) {
+				return false;
+			}
+		}
+		catch (IOException | RuntimeException e) {
+			if (logger.isInfoEnabled()) logger.info("Ignoring compiled " + compiledFile.getAbsolutePath() + ", it cannot be read: " + e);
+			return false;
+		}
+		startNanos = phaseCompleted(TECLMetrics.Phase.READ, startNanos);
+		if (logger.isInfoEnabled()) logger.info("Using compiled " + compiledFile.getAbsolutePath());
+		if (teclSchema != null) {
+			teclSchema.validateAndCompact(toplevelTECL);
+			phaseCompleted(TECLMetrics.Phase.VALIDATE, startNanos);
+		}
+		return true;
+	}
+	
+	/**
+	 * @param path file to parse
+	 * @return
+	 * @throws IOException 
+	 */
+	public TECL parse(Path path, java.nio.charset.Charset charset) throws IOException {
+		long startNanos = System.nanoTime();
+		CharBuffer config = charset.decode(ByteBuffer.wrap(Files.readAllBytes(path)));
+		phaseCompleted(TECLMetrics.Phase.READ, startNanos);
+		return parse(config);
+	}
+	
 	/**
 	 * @param inputStream inputStream to parse
 	 * @return
 	 * @throws IOException 
 	 */
 	public TECL parse(InputStream inputStream, java.nio.charset.Charset charset) throws IOException {
-		String content = readToString(inputStream, charset);
-		return parse(content);
+		long startNanos = System.nanoTime();
+		CharBuffer config = decode(inputStream, charset);
+		phaseCompleted(TECLMetrics.Phase.READ, startNanos);
+		return parse(config);
 	}
 
 	/**
@@ -251,31 +440,42 @@ public class TECLParser {
 	 * @param config
 	 * @return
 	 */
-	public TECL parse(String config) {	
-
-		// split into lines
-		List<String> lines = new BufferedReader(new StringReader(config)).lines().collect(Collectors.toList());
+	public TECL parse(String config) {
+		return parse(CharBuffer.wrap(config));
+	}
+	
+	/*
+	 * The content is preprocessed in a single pass and then handed to ANTLR without any intermediate strings.
+	 */
+	private TECL parse(CharBuffer config) {	
 		
 		// preprocess lines
-		lines = preprocess(lines, new File("."));
-		
-		// rejoin to string
-		config = lines.stream().collect(Collectors.joining("\n"));
+		long startNanos = System.nanoTime();
+		if (needsPreprocessing(config)) {
+			StringBuilder lines = new StringBuilder(config.remaining());
+			preprocess(config, new File("."), lines);
+			if (lines.length() > 0) {
+				lines.setLength(lines.length() - 1); // lines are joined by a newline, so the last one has none
+			}
+			char[] chars = new char[lines.length()];
+			lines.getChars(0, chars.length, chars, 0);
+			config = CharBuffer.wrap(chars);
+		}
+		else if (config.remaining() > 0 && config.get(config.limit() - 1) == '\n') {
+			config = config.duplicate().limit(config.limit() - 1); // the last line has no newline
+		}
+		startNanos = phaseCompleted(TECLMetrics.Phase.PREPROCESS, startNanos);
 		
 		// Trigger the ANTLR parser
-		CharStream input = CharStreams.fromString(config);
-		ThrowingErrorListener throwingErrorListener = new ThrowingErrorListener();
-		org.tbee.tecl.antlr.TECLLexer lexer = new org.tbee.tecl.antlr.TECLLexer(input);
-		lexer.addErrorListener(throwingErrorListener);
-        CommonTokenStream tokens = new CommonTokenStream(lexer);
-        org.tbee.tecl.antlr.TECLParser parser = new org.tbee.tecl.antlr.TECLParser(tokens);
-        parser.addErrorListener(throwingErrorListener);
+		CharStream input = toCharStream(config);
         ParserListener parserListener = new ParserListener(toplevelTECL);
-		parser.parse(parserListener);
+		Engine.parse(input, parserListener, fastLexer, fastParser);
+		startNanos = phaseCompleted(TECLMetrics.Phase.PARSE, startNanos);
 		
 		// validate
 		if (teclSchema != null) {
-			teclSchema.validate(parserListener.toplevelTECL);
+			teclSchema.validateAndCompact(parserListener.toplevelTECL);
+			phaseCompleted(TECLMetrics.Phase.VALIDATE, startNanos);
 		}
 		
 		// Done
@@ -283,30 +483,157 @@ public class TECLParser {
 	}
 	
 	/*
-	 * Process the lines and return a new list 
+	 * This is what CharStreams.fromString does, but without first copying the content into a string 
 	 */
-	private List<String> preprocess(List<String> lines, File curDir) {
-		List<String> toProcessLines = new ArrayList<String>(lines);
-		List<String> newLines = new ArrayList<String>();
-		
-		while (!toProcessLines.isEmpty()) {
-			String line = toProcessLines.remove(0);
+	private CharStream toCharStream(CharBuffer config) {
+		if (!config.hasArray()) {
+			config = CharBuffer.allocate(config.remaining()).put(config.duplicate()).flip();
+		}
+		CodePointBuffer.Builder codePointBufferBuilder = CodePointBuffer.builder(config.remaining());
+		codePointBufferBuilder.append(config);
+		return CodePointCharStream.fromBuffer(codePointBufferBuilder.build(), IntStream.UNKNOWN_SOURCE_NAME);
+	}
+	
+	/*
+	 * Preprocessing is only needed if there are preprocessor lines or line endings other than a newline.
+	 * If there are none, the content can be parsed as-is.
+	 */
+	private boolean needsPreprocessing(CharBuffer content) {
+		boolean startOfLine = true;
+		for (int i = content.position(); i < content.limit(); i++) {
+			char c = content.get(i);
+			if (c == '\r' || (startOfLine && c == '@')) {
+				return true;
+			}
+			startOfLine = (c == '\n');
+		}
+		return false;
+	}
+	
+	/*
+	 * Process the lines and append them to the result, each line is followed by a newline.
+	 * Imports are not handled recursively but using a stack of sources; the top one is the one being read.
+	 * That keeps the work linear in the number of lines, and deeply nested imports cannot overflow the call stack.
+	 */
+	private void preprocess(CharSequence content, File curDir, StringBuilder result) {
+		Deque<Source> sources = new ArrayDeque<>();
+		Set<String> activeIds = new HashSet<>(); // the ids of the sources on the stack, so a circular import is detected without scanning the stack 
+		sources.push(prefetchImports(new Source(null, content, curDir, null)));
+		while (!sources.isEmpty()) {
+			Source source = sources.peek();
+			if (!source.nextLine()) {
+				activeIds.remove(sources.pop().id);
+				continue;
+			}
 			
 			// @version
-			if (line.startsWith(versionPrefix)) {
-				preprocessVersion(line);				
+			if (source.lineStartsWith(versionPrefix)) {
+				preprocessVersion(source.line());				
 			}
 			// @import
-			else if (line.startsWith(importPrefix)) {
-				List<String> importedLines = preprocessImport(line, curDir);
-				toProcessLines.addAll(0, importedLines);
+			else if (source.lineStartsWith(importPrefix)) {
+				Source importedSource = (source.prefetchedImports == null ? preprocessImport(source.line(), source.curDir, source) : source.nextPrefetchedImport());
+				if (!activeIds.add(importedSource.id)) {
+					throw new IllegalStateException("Circular import of " + importedSource.id);
+				}
+				if (importedIds != null) {
+					importedIds.add(importedSource.id);
+				}
+				metrics.imported(importedSource.id);
+				sources.push(importedSource);
 			}
 			else {
-				newLines.add(line);
+				source.appendLine(result);
+				result.append('\n');
 			}
 		}
+	}
+	
+	/*
+	 * The content of a file or URL, that is read line by line.
+	 * Lines are terminated like BufferedReader does; by a newline, carriage return, or both.
+	 */
+	static private class Source {
+		final String id;
+		final CharSequence content;
+		final File curDir;
+		final Source importedBy;
+		private int next = 0;
+		private int start = 0;
+		private int end = 0;
+		List<CompletableFuture<Source>> prefetchedImports = null;
+		private int prefetchedImportIdx = 0;
 		
-		return newLines;
+		Source(String id, CharSequence content, File curDir, Source importedBy) {
+			this.id = id;
+			this.content = content;
+			this.curDir = curDir;
+			this.importedBy = importedBy;
+		}
+		
+		/* */
+		boolean isImportedBy(String id) {
+			for (Source source = importedBy; source != null; source = source.importedBy) {
+				if (id.equals(source.id)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		/* */
+		Source nextPrefetchedImport() {
+			try {
+				return prefetchedImports.get(prefetchedImportIdx++).join();
+			}
+			catch (CompletionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException)e.getCause();
+				}
+				throw e;
+			}
+		}
+		
+		/* */
+		boolean nextLine() {
+			int length = content.length();
+			if (next >= length) {
+				return false;
+			}
+			start = next;
+			end = start;
+			while (end < length && content.charAt(end) != '\n' && content.charAt(end) != '\r') {
+				end++;
+			}
+			next = end + 1;
+			if (end < length && content.charAt(end) == '\r' && next < length && content.charAt(next) == '\n') {
+				next++;
+			}
+			return true;
+		}
+		
+		/* */
+		boolean lineStartsWith(String prefix) {
+			if (end - start < prefix.length()) {
+				return false;
+			}
+			for (int i = 0; i < prefix.length(); i++) {
+				if (content.charAt(start + i) != prefix.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		/* */
+		String line() {
+			return content.subSequence(start, end).toString();
+		}
+		
+		/* */
+		void appendLine(StringBuilder result) {
+			result.append(content, start, end);
+		}
 	}
 
 	/*
@@ -330,31 +657,39 @@ public class TECLParser {
 	private Integer version = null;
 
 	/*
-	 * 
+	 * Start fetching all imports of a source in the background (if there is an executor).
+	 * The imported sources in turn prefetch their imports, unless they are part of a circular import.
+	 */
+	private Source prefetchImports(Source source) {
+		if (importExecutor == null || (source.id != null && source.isImportedBy(source.id))) {
+			return source;
+		}
+		source.prefetchedImports = new ArrayList<>();
+		Source lines = new Source(source.id, source.content, source.curDir, null);
+		while (lines.nextLine()) {
+			if (lines.lineStartsWith(importPrefix)) {
+				String line = lines.line();
+				source.prefetchedImports.add(CompletableFuture.supplyAsync(() -> prefetchImports(preprocessImport(line, source.curDir, source)), importExecutor));
+			}
+		}
+		return source;
+	}
+
+	/*
+	 * Read the imported file or URL, its lines are processed next
 	 */
-	private List<String> preprocessImport(String line, File curDir) {
+	private Source preprocessImport(String line, File curDir, Source importedBy) {
 		String additionalInfo = "";
 		try {
-			// get URL to import
+			// get URL or file to import
 			String source = line.substring(importPrefix.length()).trim();
-			InputStream inputStream;
-			if (source.contains(":")) {
-				inputStream = new URL(source).openStream();
-			}
-			else {
-				File file = new File(curDir, source);
-				additionalInfo = file.getAbsolutePath();
-				inputStream = new FileInputStream(file);
-				curDir = file.getParentFile();
+			if (!DefaultImportResolver.isURL(source)) {
+				additionalInfo = DefaultImportResolver.file(source, curDir).getAbsolutePath();
 			}
 
 			// read
-			String content = readToString(inputStream, Charset.forName("UTF-8"));
-			
-			// split into lines
-			List<String> importedLines = new BufferedReader(new StringReader(content)).lines().collect(Collectors.toList());
-			importedLines = preprocess(importedLines, curDir);
-			return importedLines;
+			ImportResolver.Import imported = importResolver.resolve(source, curDir);
+			return new Source(imported.id, imported.content, imported.curDir, importedBy);
 		}
 		catch (IOException e) {
 			throw new RuntimeException(additionalInfo, e);
@@ -365,16 +700,308 @@ public class TECLParser {
 	/*
 	 * 
 	 */
-	private class ThrowingErrorListener extends BaseErrorListener {
+	static private class ThrowingErrorListener extends BaseErrorListener {
 		@Override
 		public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) throws ParseCancellationException {
 			throw new ParseCancellationException("line " + line + ":" + charPositionInLine + " " + msg);
 		}
 	}
 	
+	// ======================================
+	// ENGINE
+	
+	/**
+	 * Use a hand written lexer instead of the one generated by ANTLR. 
+	 * It produces exactly the same tokens and error messages, but does not need to simulate the lexer state machine.
+	 * 
+	 * @param fastLexer
+	 * @return
+	 */
+	public TECLParser fastLexer(boolean fastLexer) {
+		this.fastLexer = fastLexer;
+		return this;
+	}
+	private boolean fastLexer = false;
+	
+	/**
+	 * Use a hand written parser instead of the one generated by ANTLR, for input that is known to be valid, like generated configurations. 
+	 * It builds exactly the same TECL, but skips ANTLR's prediction and error handling. 
+	 * If the input turns out not to be valid, it is parsed again using ANTLR, so errors are reported as usual.
+	 * The fast parser always uses the fast lexer.
+	 * 
+	 * @param fastParser
+	 * @return
+	 */
+	public TECLParser fastParser(boolean fastParser) {
+		this.fastParser = fastParser;
+		return this;
+	}
+	private boolean fastParser = false;
+	
+	/**
+	 * Sanitize values (remove quotes, unescape, strip the indentation of multiline strings) while parsing, instead of every time a value is read. 
+	 * This makes parsing a bit slower and uses more memory, but reading quoted and especially multiline values becomes as fast as reading plain values.
+	 * The raw values remain available through raw().
+	 * 
+	 * @param sanitizeOnParse
+	 * @return
+	 */
+	public TECLParser sanitizeOnParse(boolean sanitizeOnParse) {
+		this.sanitizeOnParse = sanitizeOnParse;
+		return this;
+	}
+	private boolean sanitizeOnParse = false;
+	
+	static {
+		if (Boolean.getBoolean("tecl.parser.warmup")) {
+			warmup();
+		}
+	}
+	
+	/**
+	 * Parse a representative config, so the ANTLR prediction (DFA) cache is filled before the first real parse. 
+	 * This is done automatically when the class is loaded if the system property tecl.parser.warmup is set to true. 
+	 */
+	static public void warmup() {
+		new TECLParser().parse(""
+				+ "@version 1\n"
+				+ "title : \"TECL warmup\"\n"
+				+ "text : \"\"\" \n"
+				+ "    multi line\n"
+				+ "    \"\"\"\n"
+				+ "list : [aaa, \"bbb\", $title]\n"
+				+ "key (attr=1) : value\n"
+				+ "key[env=prd & zone=eu] : other value # comment\n"
+				+ "group {\n"
+				+ "    key : value\n"
+				+ "    ref : $../title\n"
+				+ "    | id  | type | values    |\n"
+				+ "    | id1 | int  | [1, 2, 3] |\n"
+				+ "    | id2 |      | [4]       |\n"
+				+ "\n"
+				+ "    sub[env=prd] { \n"
+				+ "        key : value\n"
+				+ "    }\n"
+				+ "}\n"
+				);
+	}
+	
+	/**
+	 * Clear the ANTLR prediction (DFA) cache, which is shared by all parsers, to release its memory. 
+	 * It will be filled again by the next parses. Do not call this while parses are running.
+	 */
+	static public void clearDFACache() {
+		Engine engine = Engine.engines.get();
+		engine.lexer.getInterpreter().clearDFA();
+		engine.parser.getInterpreter().clearDFA();
+	}
+	
+	/*
+	 * The ANTLR lexer, token stream and parser are reused per thread, instead of being created for every parse.
+	 */
+	static private class Engine {
+		static private final Logger logger = LoggerFactory.getLogger(TECLParser.class);
+		static private final ThreadLocal<Engine> engines = ThreadLocal.withInitial(Engine::new);
+		static private final ThrowingErrorListener throwingErrorListener = new ThrowingErrorListener();
+		
+		private final CharStream empty = CharStreams.fromString("");
+		final org.tbee.tecl.antlr.TECLLexer lexer = new org.tbee.tecl.antlr.TECLLexer(empty);
+		final TECLTokenSource fastLexer = new TECLTokenSource(empty);
+		final CommonTokenStream tokens = new CommonTokenStream(lexer);
+		final org.tbee.tecl.antlr.TECLParser parser = new org.tbee.tecl.antlr.TECLParser(tokens);
+		private final ANTLRErrorStrategy defaultErrorStrategy = new DefaultErrorStrategy();
+		private final ANTLRErrorStrategy bailErrorStrategy = new BailErrorStrategy();
+		private TokenSource tokenSource = lexer;
+		private boolean inUse = false;
+		
+		Engine() {
+			parser.setBuildParseTree(false); // the listener does all the work, the parse tree is never used
+		}
+		
+		/* */
+		static void parse(CharStream input, org.tbee.tecl.antlr.TECLParser.Listener listener, boolean useFastLexer, boolean useFastParser) {
+			Engine engine = engines.get();
+			if (engine.inUse) {
+				engine = new Engine(); // a parse within a parse on the same thread
+			}
+			engine.inUse = true;
+			engine.tokenSource = (useFastLexer ? engine.fastLexer : engine.lexer);
+			try {
+				if (!useFastParser || !engine.parseFast(input, listener)) {
+					engine.parseTwoStage(input, listener);
+				}
+			}
+			finally {
+				engine.tokenSource = engine.lexer;
+				engine.reset(engine.empty); // do not hold on to the tokens of this parse
+				engine.fastLexer.setInputStream(engine.empty);
+				engine.inUse = false;
+			}
+		}
+		
+		/*
+		 * The hand written parser does no error reporting, so its listener calls are recorded and only replayed when it succeeds.
+		 * Returns false if it failed, the input then needs to be parsed by ANTLR.
+		 */
+		private boolean parseFast(CharStream input, org.tbee.tecl.antlr.TECLParser.Listener listener) {
+			RecordingListener recordingListener = new RecordingListener();
+			try {
+				fastLexer.removeErrorListeners();
+				fastLexer.addErrorListener(throwingErrorListener);
+				input.seek(0);
+				fastLexer.setInputStream(input);
+				new TECLFastParser(fastLexer).parse(recordingListener);
+			}
+			catch (ParseCancellationException e) {
+				if (logger.isDebugEnabled()) logger.debug("Fast parse failed, parsing again using ANTLR: " + e.getMessage());
+				return false;
+			}
+			recordingListener.replay(listener);
+			return true;
+		}
+		
+		/*
+		 * First try the fast SLL prediction mode, which bails out on the first syntax error. 
+		 * SLL either produces the same result as full LL or fails, and only if it fails the input is parsed again in LL mode.
+		 * Because the first attempt may fail halfway, its listener calls are recorded and only replayed when it succeeds.
+		 * The second attempt is exactly the original LL parse, so error messages do not change.
+		 */
+		private void parseTwoStage(CharStream input, org.tbee.tecl.antlr.TECLParser.Listener listener) {
+			RecordingListener recordingListener = new RecordingListener();
+			try {
+				configure(PredictionMode.SLL, bailErrorStrategy, false);
+				reset(input);
+				parser.parse(recordingListener);
+			}
+			catch (ParseCancellationException e) {
+				if (logger.isDebugEnabled()) logger.debug("SLL parse failed, parsing again using full LL");
+				configure(PredictionMode.LL, defaultErrorStrategy, true);
+				reset(input);
+				parser.parse(listener);
+				return;
+			}
+			recordingListener.replay(listener);
+		}
+		
+		/*
+		 * In the first stage errors are not printed to the console, so only the second stage reports them  
+		 */
+		private void configure(PredictionMode predictionMode, ANTLRErrorStrategy errorStrategy, boolean reportToConsole) {
+			parser.getInterpreter().setPredictionMode(predictionMode);
+			parser.setErrorHandler(errorStrategy);
+			lexer.removeErrorListeners();
+			fastLexer.removeErrorListeners();
+			parser.removeErrorListeners();
+			if (reportToConsole) {
+				lexer.addErrorListener(ConsoleErrorListener.INSTANCE);
+				fastLexer.addErrorListener(ConsoleErrorListener.INSTANCE);
+				parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+			}
+			lexer.addErrorListener(throwingErrorListener);
+			fastLexer.addErrorListener(throwingErrorListener);
+			parser.addErrorListener(throwingErrorListener);
+		}
+		
+		/* */
+		private void reset(CharStream input) {
+			input.seek(0);
+			if (tokenSource == fastLexer) {
+				fastLexer.setInputStream(input);
+			}
+			else {
+				lexer.setInputStream(input);
+			}
+			tokens.setTokenSource(tokenSource);
+			parser.setTokenStream(tokens);
+		}
+	}
+	
+	/*
+	 * Remembers all calls, so they can be replayed on another listener later
+	 */
+	static private class RecordingListener implements org.tbee.tecl.antlr.TECLParser.Listener {
+		private final List<Consumer<org.tbee.tecl.antlr.TECLParser.Listener>> calls = new ArrayList<>();
+		
+		/* */
+		void replay(org.tbee.tecl.antlr.TECLParser.Listener listener) {
+			for (Consumer<org.tbee.tecl.antlr.TECLParser.Listener> call : calls) {
+				call.accept(listener);
+			}
+		}
+
+		@Override
+		public void setProperty(String key, List<String> values) {
+			List<String> copy = new ArrayList<>(values); // the parser reuses the list
+			calls.add(l -> l.setProperty(key, copy));
+		}
+
+		@Override
+		public void setProperty(int idx, String key, String value) {
+			calls.add(l -> l.setProperty(idx, key, value));
+		}
+
+		@Override
+		public void startGroup(String id) {
+			calls.add(l -> l.startGroup(id));
+		}
+
+		@Override
+		public void endGroup() {
+			calls.add(l -> l.endGroup());
+		}
+
+		@Override
+		public void startAttributes() {
+			calls.add(l -> l.startAttributes());
+		}
+
+		@Override
+		public void addAttribute(String key, String value) {
+			calls.add(l -> l.addAttribute(key, value));
+		}
+
+		@Override
+		public void startConditions() {
+			calls.add(l -> l.startConditions());
+		}
+
+		@Override
+		public void addCondition(String key, String comparator, String value) {
+			calls.add(l -> l.addCondition(key, comparator, value));
+		}
+
+		@Override
+		public void startTable() {
+			calls.add(l -> l.startTable());
+		}
+
+		@Override
+		public void terminateTable() {
+			calls.add(l -> l.terminateTable());
+		}
+
+		@Override
+		public void startTableRow() {
+			calls.add(l -> l.startTableRow());
+		}
+
+		@Override
+		public void addTableData(List<String> values) {
+			List<String> copy = new ArrayList<>(values); // the parser reuses the list
+			calls.add(l -> l.addTableData(copy));
+		}
+
+		@Override
+		public void addTableData(String value) {
+			calls.add(l -> l.addTableData(value));
+		}
+	}
+	
 	// ======================================
 	// GRAMMAR
 	
+	final static private int MAX_POOLED_LENGTH = 32; // longer values are unlikely to repeat
+	
 	class ParserListener implements org.tbee.tecl.antlr.TECLParser.Listener { 
 	
 		public ParserListener(TECL toplevelTECL) {
@@ -385,6 +1012,20 @@ public class TECLParser {
 		}
 		private final TECL toplevelTECL;	
 		
+		/*
+		 * Keys and short values repeat a lot (table headers, true/false, ...), but each token becomes a new String.
+		 * The pool lives as long as the parse, so all equal strings in the resulting tree are the same instance, without touching the JVM wide String.intern().
+		 * Java already stores Latin-1 strings as one byte per character (compact strings), so no separate byte[] representation is needed.
+		 */
+		private final Map<String, String> stringPool = new HashMap<>();
+		private String pooled(String s) {
+			if (s == null || s.length() > MAX_POOLED_LENGTH) {
+				return s;
+			}
+			String pooled = stringPool.putIfAbsent(s, s);
+			return pooled == null ? s : pooled;
+		}
+		
 		// This is the active TECL within the group
 		private final Stack<TECLContext> teclContextStack = new Stack<>();
 		private TECLContext teclContext;
@@ -401,16 +1042,16 @@ public class TECLParser {
 		
 		@Override
 		public void setProperty(String key, List<String> values) {	                                                
+			key = pooled(key);
 			Boolean matchConditions = matchConditions(useConditions(), teclContext, key);
 			if (matchConditions == null || matchConditions) {
 				boolean allowOverwrite = (matchConditions != null);
 				if (allowOverwrite) {
 					teclContext.tecl.clearProperty(key);
 				}
-				AtomicInteger idx = new AtomicInteger();
-				values.forEach(value -> {
-					teclContext.tecl.setProperty(idx.getAndIncrement(), key, value, getAttributes());
-				});
+				for (int idx = 0; idx < values.size(); idx++) {
+					teclContext.tecl.setProperty(idx, key, pooled(values.get(idx)), false, getAttributes(), sanitizeOnParse);
+				}
 			}
 		}	
 	
@@ -419,7 +1060,7 @@ public class TECLParser {
 			Boolean matchConditions = matchConditions(useConditions(), teclContext, key);
 			if (matchConditions == null || matchConditions) {
 				boolean allowOverwrite = (matchConditions != null);
-				teclContext.tecl.setProperty(idx, key, value, allowOverwrite, getAttributes());
+				teclContext.tecl.setProperty(idx, pooled(key), pooled(value), allowOverwrite, getAttributes(), sanitizeOnParse);
 			}
 		}	
 	
@@ -428,6 +1069,7 @@ public class TECLParser {
 		
 		@Override
 		public void startGroup(String id) {
+			id = pooled(id);
 
 			if (logger.isDebugEnabled()) logger.debug("startGroup '" + id + "'");
 			Boolean matchConditions = matchConditions(useConditions(), null /*teclContext*/, id);
@@ -461,7 +1103,7 @@ public class TECLParser {
 		
 		@Override
 		public void addAttribute(String key, String value) {
-			attributes.add(new Attribute(key, value));
+			attributes.add(new Attribute(pooled(key), pooled(value)));
 		}
 		
 		private List<Attribute> getAttributes() {
@@ -535,6 +1177,7 @@ public class TECLParser {
 	
 		@Override
 		public void addTableData(String value) {
+			value = pooled(value);
 			validateTerminatedTable();
 			if (logger.isDebugEnabled()) logger.debug("addTableRow row=" + tableRowIdx + ", col=" + tableColIdx + ", value=" + value);
 			
@@ -545,7 +1188,7 @@ public class TECLParser {
 			else {
 				String key = tableKeys.get(tableColIdx);
 				if (logger.isDebugEnabled()) logger.debug("addTableRow add data " + key + "[" + tableRowIdx + "]=" + value);
-				teclContext.tecl.setProperty(tableRowIdx, key, value, null);
+				teclContext.tecl.setTableData(tableRowIdx, key, value, sanitizeOnParse);
 			}
 			tableColIdx++;
 		}
@@ -568,7 +1211,7 @@ public class TECLParser {
 				if (logger.isDebugEnabled()) logger.debug("new group '" + id + "' added at " + teclContext.tecl.getPath());
 				AtomicInteger idx = new AtomicInteger(0);
 				values.forEach(value -> {
-					listTECL.setProperty(idx.getAndIncrement(), key, value, null);
+					listTECL.setProperty(idx.getAndIncrement(), key, pooled(value), false, null, sanitizeOnParse);
 				});
 			}
 			tableColIdx++;
@@ -705,15 +1348,17 @@ public class TECLParser {
 	}
 	
 	private String readToString(InputStream inputStream, Charset charset) throws IOException {
-		StringBuilder sb = new StringBuilder();
+		return decode(inputStream, charset).toString();
+	}
+	
+	/*
+	 * Read the stream in bulk and decode it; the stream is closed afterwards
+	 */
+	private CharBuffer decode(InputStream inputStream, Charset charset) throws IOException {
 		try (
-				Reader reader = new BufferedReader(new InputStreamReader(inputStream, charset))
+			InputStream closeableInputStream = inputStream
 		) {
-			int c = 0;
-			while ((c = reader.read()) != -1) {
-				sb.append((char)c);
-			}
+			return charset.decode(ByteBuffer.wrap(closeableInputStream.readAllBytes()));
 		}
-		return sb.toString();
 	}
 }
@@ -0,0 +1,213 @@
+package org.tbee.tecl;
+
+/*-
+ * #%L
+ * TECL
+ * %%
+ * Copyright (C) 2020 Tom Eugelink
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A path, like /group1/group2[4]/value, that has been tokenized and had its indexes extracted.
+ * Use {@link TECL#compile(String)} to obtain one; compiled paths are immutable and can be reused across TECL trees and threads.
+ */
+public final class TECLPath {
+	private final static String ENV_PREFIX = "env@";
+	private final static String SYS_PREFIX = "sys@";
+	
+	// =====================================
+	// cache
+	
+	/*
+	 * Compiled paths are cached by their path string. 
+	 * The cache is bounded; when it is full it is simply emptied, the hot paths will quickly repopulate it.
+	 */
+	private final static int CACHE_SIZE = 1024;
+	private final static Map<String, TECLPath> cache = new ConcurrentHashMap<>();
+	
+	/**
+	 * Compile a path, or fetch it from the cache if it was compiled before.
+	 * @param path
+	 * @return
+	 */
+	static TECLPath compile(String path) {
+		TECLPath teclPath = cache.get(path);
+		if (teclPath == null) {
+			teclPath = new TECLPath(path);
+			if (cache.size() >= CACHE_SIZE) {
+				cache.clear();
+			}
+			cache.put(path, teclPath);
+		}
+		return teclPath;
+	}
+	
+	// =====================================
+	// Constructor
+	
+	private TECLPath(String path) {
+		this.path = path;
+		this.indexedFrom = null;
+		this.indexedIdx = 0;
+		this.env = path.startsWith(ENV_PREFIX);
+		this.sys = path.startsWith(SYS_PREFIX);
+		this.absolute = path.startsWith("/");
+		
+		// Specials are not tokenized
+		if (env || sys) {
+			this.variable = path.substring(env ? ENV_PREFIX.length() : SYS_PREFIX.length());
+			this.nodes = new String[0];
+			this.idxs = newIdxsArray(0);
+			return;
+		}
+		this.variable = null;
+		
+		// Split into its parts (empty parts are ignored) and extract the indexes from each part (if any, may be two)
+		List<String> tokens = new ArrayList<>();
+		int start = 0;
+		while (start <= path.length()) {
+			int end = path.indexOf('/', start);
+			if (end < 0) {
+				end = path.length();
+			}
+			if (end > start) {
+				tokens.add(path.substring(start, end));
+			}
+			start = end + 1;
+		}
+		this.nodes = new String[tokens.size()];
+		this.idxs = newIdxsArray(tokens.size());
+		for (int i = 0; i < tokens.size(); i++) {
+			List<Integer> nodeIdxs = new ArrayList<>(); 
+			this.nodes[i] = extractIdxs(tokens.get(i), nodeIdxs);
+			this.idxs[i] = nodeIdxs.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(nodeIdxs);
+		}
+	}
+	
+	/*
+	 * The same path with an index appended to the last node, derived from the already parsed path instead of parsing the string again.
+	 * The nodes are shared, only the indexes of the last node differ; the path string is only build when needed.
+	 */
+	private TECLPath(TECLPath indexedFrom, int idx) {
+		this.path = null;
+		this.env = false;
+		this.sys = false;
+		this.variable = null;
+		this.absolute = indexedFrom.absolute;
+		this.nodes = indexedFrom.nodes;
+		this.idxs = indexedFrom.idxs.clone();
+		int last = idxs.length - 1;
+		if (idxs[last].isEmpty()) {
+			idxs[last] = Collections.singletonList(idx);
+		}
+		else {
+			List<Integer> nodeIdxs = new ArrayList<>(idxs[last]);
+			nodeIdxs.add(idx);
+			idxs[last] = Collections.unmodifiableList(nodeIdxs);
+		}
+		this.indexedFrom = indexedFrom;
+		this.indexedIdx = idx;
+	}
+	private String path; // null for an indexed path until toString is called; assigning a String is safe between threads
+	private final TECLPath indexedFrom;
+	private final int indexedIdx;
+	final boolean env;
+	final boolean sys;
+	final String variable;
+	final boolean absolute;
+	final String[] nodes;
+	final List<Integer>[] idxs;
+	
+	@SuppressWarnings("unchecked")
+	private static List<Integer>[] newIdxsArray(int size) {
+		return (List<Integer>[])new List<?>[size];
+	}
+
+	/*
+	 * 
+	 */
+	private static String extractIdxs(String node, List<Integer> idxs) {
+		while (node.contains("[")) {
+			int startIdx = node.indexOf("[");
+			int endIdx = node.indexOf("]");
+			String idxString = node.substring(startIdx + 1,endIdx);
+			Integer idx = idxString.trim().isEmpty() ? null : Integer.parseInt(idxString);
+			idxs.add(idx);
+			String remainingIdx = node.substring(endIdx + 1);
+			node = node.substring(0, startIdx) + remainingIdx;				
+		}
+		return node;
+	}
+
+	// =====================================
+	// indexed
+	
+	/**
+	 * The same path with an additional index appended, identical to compiling path + "[" + idx + "]".
+	 * This is what the convenience methods like str(idx, key) use.
+	 * The indexed path is derived from this one without building or parsing a string, and it does not go into the cache of compiled paths, 
+	 * so iterating over a large table does not push the other paths out.
+	 * @param idx
+	 * @return
+	 */
+	public TECLPath indexed(int idx) {
+		// An index after a slash or on a special is not appended to the last node, the string tells what it means 
+		if (env || sys || nodes.length == 0 || (indexedFrom == null && path.endsWith("/"))) {
+			return new TECLPath(toString() + "[" + idx + "]");
+		}
+		if (idx < 0 || idx >= indexed.length) {
+			return new TECLPath(this, idx);
+		}
+		
+		// Remember the most common indexed variants, so these do not even need to be derived
+		TECLPath teclPath = indexed[idx];
+		if (teclPath == null) {
+			teclPath = new TECLPath(this, idx);
+			indexed[idx] = teclPath;
+		}
+		return teclPath;
+	}
+	private final TECLPath[] indexed = new TECLPath[8];
+	
+	/**
+	 * Number of nodes in the path
+	 */
+	int size() {
+		return nodes.length;
+	}
+	
+	@Override
+	public String toString() {
+		String path = this.path;
+		if (path == null) {
+			path = indexedFrom.toString() + "[" + indexedIdx + "]";
+			this.path = path;
+		}
+		return path;
+	}
+}
@@ -0,0 +1,167 @@
+package org.tbee.tecl;
+
+/*-
+ * #%L
+ * TECL
+ * %%
+ * Copyright (C) 2020 Tom Eugelink
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.URL;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A view on one row of a table.
+ * The values are read directly from the columns of the table, so a row does not copy anything.
+ * 
+ * <pre>{@code
+ *     tecl.grp("/servers").rowStream()
+ *         .filter(row -> row.integer("maxSessions", 0) > 10)
+ *         .map(row -> row.str("name"))
+ *         ...
+ * }</pre>
+ */
+public final class TECLRow {
+
+	private final TECL table;
+	private final int idx;
+	
+	TECLRow(TECL table, int idx) {
+		this.table = table;
+		this.idx = idx;
+	}
+	
+	/**
+	 * The TECL holding the table
+	 */
+	public TECL getTable() {
+		return table;
+	}
+	
+	/**
+	 * The index of the row in the table
+	 */
+	public int getIdx() {
+		return idx;
+	}
+	
+	/**
+	 * Get the value in a column of this row 
+	 * @param <R>
+	 * @param key the column
+	 * @param def the value to return if nothing is found
+	 * @param clazz the return type (also used to get appropriate convert function)
+	 * @return 
+	 */
+	public <R> R get(String key, R def, Class<R> clazz) {
+		return table.rowValue(idx, key, def, clazz);
+	}
+	
+	/** Convenience method to return a string */
+	public String str(String key) {
+		return get(key, null, String.class);
+	}
+	public String str(String key, String def) {
+		return get(key, def, String.class);
+	}
+	
+	/** Convenience method to return an Integer */
+	public Integer integer(String key) {
+		return get(key, null, Integer.class);
+	}
+	public Integer integer(String key, Integer def) {
+		return get(key, def, Integer.class);
+	}
+	
+	/** Convenience method to return a Double */
+	public Double dbl(String key) {
+		return get(key, null, Double.class);
+	}
+	public Double dbl(String key, Double def) {
+		return get(key, def, Double.class);
+	}
+	
+	/** Convenience method to return a Boolean */
+	public Boolean bool(String key) {
+		return get(key, null, Boolean.class);
+	}
+	public Boolean bool(String key, Boolean def) {
+		return get(key, def, Boolean.class);
+	}
+	
+	/** Convenience method to return a BigInteger */
+	public BigInteger bi(String key) {
+		return get(key, null, BigInteger.class);
+	}
+	public BigInteger bi(String key, BigInteger def) {
+		return get(key, def, BigInteger.class);
+	}
+	
+	/** Convenience method to return a BigDecimal */
+	public BigDecimal bd(String key) {
+		return get(key, null, BigDecimal.class);
+	}
+	public BigDecimal bd(String key, BigDecimal def) {
+		return get(key, def, BigDecimal.class);
+	}
+	
+	/** Convenience method to return a LocalDate */
+	public LocalDate localDate(String key) {
+		return get(key, null, LocalDate.class);
+	}
+	public LocalDate localDate(String key, LocalDate def) {
+		return get(key, def, LocalDate.class);
+	}
+	
+	/** Convenience method to return a LocalDateTime */
+	public LocalDateTime localDateTime(String key) {
+		return get(key, null, LocalDateTime.class);
+	}
+	public LocalDateTime localDateTime(String key, LocalDateTime def) {
+		return get(key, def, LocalDateTime.class);
+	}
+	
+	/** Convenience method to return a URI */
+	public URI uri(String key) {
+		return get(key, null, URI.class);
+	}
+	public URI uri(String key, URI def) {
+		return get(key, def, URI.class);
+	}
+	
+	/** Convenience method to return a URL */
+	public URL url(String key) {
+		return get(key, null, URL.class);
+	}
+	public URL url(String key, URL def) {
+		return get(key, def, URL.class);
+	}
+	
+	@Override
+	public String toString() {
+		return table.getPath() + "[" + idx + "]";
+	}
+}
@@ -74,19 +74,34 @@ public class TECLSchema {
 	 * @param tecl
 	 */
 	public void validate(TECL tecl) {
+		validate(tecl, (List<Runnable>)null);
+	}
+	
+	/*
+	 * Validate, and once the whole tree passes, store the typed table columns as primitives.
+	 * Used by the parser on the tree it just created, so validate itself never changes how a tree is stored.
+	 */
+	void validateAndCompact(TECL tecl) {
+		List<Runnable> compactions = new ArrayList<>();
+		validate(tecl, compactions);
+		compactions.forEach(Runnable::run);
+	}
+	
+	/* */
+	private void validate(TECL tecl, List<Runnable> compactions) {
 		
 		// construct the convertFunctions mapping
 		for (Class<?> clazz : TECL.buildinConvertFunctions.keySet()) {
 			typeToClass.put(clazz.getSimpleName(), clazz);
 		}
-		for (Class<?> clazz : tecl.convertFunctions.keySet()) {
+		for (Class<?> clazz : tecl.convertFunctions().keySet()) {
 			if (!typeToClass.values().contains(clazz)) {
 				typeToClass.put(clazz.getSimpleName(), clazz);
 			}
 		}
 		
 		// now validate
-		validate(tecl, schemaTECL);
+		validate(tecl, schemaTECL, compactions);
 	}
 	public Map<String, Class<?>> typeToClass = new HashMap<>();
 
@@ -94,7 +109,7 @@ public class TECLSchema {
 	/*
 	 * 
 	 */
-	private void validate(TECL tecl, TECL schemaTECL) {
+	private void validate(TECL tecl, TECL schemaTECL, List<Runnable> compactions) {
 		List<String> processedKeys = new ArrayList<String>();
 		
 		// scan all properties in the schema
@@ -113,7 +128,13 @@ public class TECLSchema {
 			String schemaType = schemaTECL.str(schemaPropertyIdx, "type");
 			String schemaSubtype = schemaTECL.str(schemaPropertyIdx, "subtype");
 			if ("group".equals(schemaType)) {
-				validateGroup(tecl, schemaPropertyIdx, schemaPropertyId, schemaSubtype);
+				validateGroup(tecl, schemaPropertyIdx, schemaPropertyId, schemaSubtype, compactions);
+			}
+			
+			// if the whole tree validates, the values are known to be of the type, so a table column can be stored as primitives
+			Class<?> typeClass = (schemaType == null ? null : typeToClass.get(schemaType));
+			if (typeClass != null && compactions != null) {
+				compactions.add(() -> tecl.compactTableColumn(schemaPropertyId, typeClass));
 			}
 			
 			// attributes
@@ -125,7 +146,7 @@ public class TECLSchema {
 				throw new ValidationException("Attributes exist, but no schema for the attributes at " + tecl.createFullPathToKey(0, schemaPropertyId));				
 			}
 			try {
-				validate(attrTECL, schemaAttrTECL);
+				validate(attrTECL, schemaAttrTECL, compactions);
 			}
 			catch (ValidationException e) {
 				throw new ValidationException("Attributes fail to validate at " + tecl.createFullPathToKey(0, schemaPropertyId), e);
@@ -142,7 +163,7 @@ public class TECLSchema {
 		}
 	}
 
-	private void validateGroup(TECL tecl, int schemaPropertyIdx, String schemaGroupId, String schemaGroupName) {
+	private void validateGroup(TECL tecl, int schemaPropertyIdx, String schemaGroupId, String schemaGroupName, List<Runnable> compactions) {
 		
 		// get schema for group
 		TECL groupSchemaTECL = schemaTECL.grp(schemaGroupName);
@@ -153,7 +174,7 @@ public class TECLSchema {
 		// Scan the groups
 		List<TECL> groups = tecl.grps(schemaGroupId);
 		for (TECL group : groups) {
-			validate(group, groupSchemaTECL);
+			validate(group, groupSchemaTECL, compactions);
 		}
 	}
 
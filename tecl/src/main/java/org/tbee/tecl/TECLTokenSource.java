@@ -0,0 +1,324 @@
+package org.tbee.tecl;
+
+/*-
+ * #%L
+ * TECL
+ * %%
+ * Copyright (C) 2020 Tom Eugelink
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.misc.Pair;
+import org.tbee.tecl.antlr.TECLLexer;
+
+/**
+ * A hand written replacement for the generated TECLLexer, producing exactly the same tokens.
+ * The TECL token set is small enough to recognize each token with a few character comparisons, instead of simulating the lexer ATN.
+ * Tokens do not copy their text, it is taken from the input when the parser asks for it.
+ * 
+ * Like ANTLR, the longest match wins, and if two rules match the same length, the rule that is first in the grammar wins:
+ * ASSIGN ... EQUALS, REFERENCE, NL, STRING, WORD, COMMENT, SPACES. 
+ * For example "#comment" is a WORD and not a COMMENT, and "$abc" is a REFERENCE and not a WORD.
+ */
+class TECLTokenSource implements TokenSource {
+
+	private CharStream input;
+	private Pair<TokenSource, CharStream> tokenFactorySourcePair;
+	private TokenFactory<?> tokenFactory = CommonTokenFactory.DEFAULT;
+	private final List<ANTLRErrorListener> errorListeners = new ArrayList<>();
+	private int line = 1;
+	private int charPositionInLine = 0;
+	
+	TECLTokenSource(CharStream input) {
+		setInputStream(input);
+	}
+	
+	/*
+	 * Start lexing a new input
+	 */
+	void setInputStream(CharStream input) {
+		this.input = input;
+		this.tokenFactorySourcePair = new Pair<>(this, input);
+		this.line = 1;
+		this.charPositionInLine = 0;
+	}
+	
+	void addErrorListener(ANTLRErrorListener errorListener) {
+		errorListeners.add(errorListener);
+	}
+	
+	void removeErrorListeners() {
+		errorListeners.clear();
+	}
+
+	@Override
+	public Token nextToken() {
+		while (true) {
+			int start = input.index();
+			int startLine = line;
+			int startCharPositionInLine = charPositionInLine;
+			int c = input.LA(1);
+			if (c == IntStream.EOF) {
+				return tokenFactory.create(tokenFactorySourcePair, Token.EOF, null, Token.DEFAULT_CHANNEL, start, start - 1, line, charPositionInLine);
+			}
+			
+			// Determine the type and length of the token
+			int type;
+			int length;
+			switch (c) {
+				case ':': type = TECLLexer.ASSIGN; length = 1; break;
+				case '[': type = TECLLexer.OBRACK; length = 1; break;
+				case ']': type = TECLLexer.CBRACK; length = 1; break;
+				case '{': type = TECLLexer.OBRACE; length = 1; break;
+				case '}': type = TECLLexer.CBRACE; length = 1; break;
+				case '(': type = TECLLexer.OPARENTHESIS; length = 1; break;
+				case ')': type = TECLLexer.CPARENTHESIS; length = 1; break;
+				case ',': type = TECLLexer.COMMA; length = 1; break;
+				case '|': type = TECLLexer.PIPE; length = 1; break;
+				case '&': type = TECLLexer.AND; length = 1; break;
+				case '=': type = TECLLexer.EQUALS; length = 1; break;
+				case '\r':
+				case '\n': 
+					type = TECLLexer.NL; 
+					length = newlinesLength(); 
+					break;
+				case ' ':
+				case '\t': 
+					type = TECLLexer.SPACES; 
+					length = spacesLength(); 
+					break;
+				case '<':
+				case '>':
+				case '!': 
+					// No rule matches these, report like ANTLR does and skip the character
+					notifyListeners(startLine, startCharPositionInLine, "token recognition error at: '" + (char)c + "'");
+					consume(1);
+					continue;
+				default: 
+					type = TECLLexer.WORD;
+					length = wordLength();
+					if (c == '$' && length > 1) {
+						type = TECLLexer.REFERENCE; // same length, but REFERENCE comes first 
+					}
+					else if (c == '"') {
+						int stringLength = Math.max(tripleQuotedStringLength(), quotedStringLength());
+						if (stringLength >= length) {
+							type = TECLLexer.STRING; // on the same length STRING comes first
+							length = stringLength;
+						}
+					}
+					else if (c == '#') {
+						int commentLength = commentLength();
+						if (commentLength > length) {
+							type = TECLLexer.COMMENT; // on the same length WORD comes first
+							length = commentLength;
+						}
+					}
+			}
+			if (type == TECLLexer.NL || type == TECLLexer.STRING) {
+				consume(length);
+			}
+			else {
+				// no newlines in these tokens 
+				input.seek(start + length);
+				charPositionInLine += length;
+			}
+			
+			// Comments and spaces are skipped
+			if (type == TECLLexer.COMMENT || type == TECLLexer.SPACES) {
+				continue;
+			}
+			return tokenFactory.create(tokenFactorySourcePair, type, null, Token.DEFAULT_CHANNEL, start, start + length - 1, startLine, startCharPositionInLine);
+		}
+	}
+	
+	/* 
+	 * Lookahead, 0 is the current character
+	 */
+	private int la(int offset) {
+		return input.LA(offset + 1);
+	}
+	
+	/*
+	 * Consume the characters, keeping track of line and position like the ANTLR lexer does
+	 */
+	private void consume(int length) {
+		for (int i = 0; i < length; i++) {
+			if (input.LA(1) == '\n') {
+				line++;
+				charPositionInLine = 0;
+			}
+			else {
+				charPositionInLine++;
+			}
+			input.consume();
+		}
+	}
+	
+	/* [\r\n]+ */
+	private int newlinesLength() {
+		int i = 1;
+		while (la(i) == '\r' || la(i) == '\n') {
+			i++;
+		}
+		return i;
+	}
+	
+	/* [ \t]+ */
+	private int spacesLength() {
+		int i = 1;
+		while (la(i) == ' ' || la(i) == '\t') {
+			i++;
+		}
+		return i;
+	}
+	
+	/* ~[ \t\r\n[\]{}():=<>!,|&]+ */
+	private int wordLength() {
+		int i = 0;
+		while (isWordCharacter(la(i))) {
+			i++;
+		}
+		return i;
+	}
+	
+	/* */
+	private static boolean isWordCharacter(int c) {
+		switch (c) {
+			case IntStream.EOF:
+			case ' ': case '\t': case '\r': case '\n': 
+			case '[': case ']': case '{': case '}': case '(': case ')': 
+			case ':': case '=': case '<': case '>': case '!': case ',': case '|': case '&':
+				return false;
+			default:
+				return true;
+		}
+	}
+	
+	/* '#' ~[\r\n]* */
+	private int commentLength() {
+		int i = 1;
+		while (la(i) != IntStream.EOF && la(i) != '\r' && la(i) != '\n') {
+			i++;
+		}
+		return i;
+	}
+	
+	/* 
+	 * '"' ( ~[\\"] | '\\' . )* '"' 
+	 * Returns -1 if there is no match
+	 */
+	private int quotedStringLength() {
+		int i = 1;
+		while (true) {
+			int c = la(i);
+			if (c == IntStream.EOF) {
+				return -1;
+			}
+			if (c == '"') {
+				return i + 1;
+			}
+			if (c == '\\') {
+				if (la(i + 1) == IntStream.EOF) {
+					return -1;
+				}
+				i += 2;
+			}
+			else {
+				i++;
+			}
+		}
+	}
+	
+	/* 
+	 * '"""' ( EscapedTripleQuote | . )*? '"""' 
+	 * The loop is non-greedy, so the string ends at the first closing quotes.
+	 * Except when those are escaped; ANTLR then also continues the escape alternative, and takes the longest of both.
+	 * Returns -1 if there is no match
+	 */
+	private int tripleQuotedStringLength() {
+		if (la(1) != '"' || la(2) != '"') {
+			return -1;
+		}
+		int accepted = -1;
+		int i = 3;
+		while (la(i) != IntStream.EOF) {
+			if (la(i) == '\\' && la(i + 1) == '"' && la(i + 2) == '"' && la(i + 3) == '"') {
+				accepted = i + 4; // the unescaped interpretation ends here
+				i += 4;
+			}
+			else if (la(i) == '"' && la(i + 1) == '"' && la(i + 2) == '"') {
+				return i + 3;
+			}
+			else {
+				i++;
+			}
+		}
+		return accepted;
+	}
+	
+	/* */
+	private void notifyListeners(int line, int charPositionInLine, String msg) {
+		for (ANTLRErrorListener errorListener : errorListeners) {
+			errorListener.syntaxError(null, null, line, charPositionInLine, msg, null);
+		}
+	}
+
+	@Override
+	public int getLine() {
+		return line;
+	}
+
+	@Override
+	public int getCharPositionInLine() {
+		return charPositionInLine;
+	}
+
+	@Override
+	public CharStream getInputStream() {
+		return input;
+	}
+
+	@Override
+	public String getSourceName() {
+		return input.getSourceName();
+	}
+
+	@Override
+	public void setTokenFactory(TokenFactory<?> tokenFactory) {
+		this.tokenFactory = tokenFactory;
+	}
+
+	@Override
+	public TokenFactory<?> getTokenFactory() {
+		return tokenFactory;
+	}
+}
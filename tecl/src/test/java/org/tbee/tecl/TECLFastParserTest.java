@@ -0,0 +1,262 @@
+package org.tbee.tecl;
+
+/*-
+ * #%L
+ * TECL
+ * %%
+ * Copyright (C) 2020 Tom Eugelink
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.tbee.tecl.antlr.TECLLexer;
+import org.tbee.tecl.antlr.TECLParser.Listener;
+
+/**
+ * Conformance of the hand written parser with the ANTLR parser: both must make exactly the same listener calls.
+ */
+public class TECLFastParserTest {
+
+	@Test
+	public void resources() throws IOException {
+		List<Path> paths;
+		try (
+			Stream<Path> stream = Files.walk(Paths.get("src/test/resources"));
+		) {
+			paths = stream.filter(path -> path.toString().endsWith(".tecl")).collect(Collectors.toList());
+		}
+		Assert.assertTrue(paths.size() > 5);
+		for (Path path : paths) {
+			String config = new String(Files.readAllBytes(path), StandardCharsets.UTF_8).replace("\r", "");
+			if (config.startsWith("@") || config.contains("\n@")) {
+				continue; // imports are resolved before parsing 
+			}
+			assertSameCalls(config, true);
+		}
+	}
+	
+	@Test
+	public void validInput() {
+		String[] configs = {
+			"", 
+			"\n\n", 
+			"key : value", 
+			"key : value\n\n\nkey2 : value2\n", 
+			"key :",
+			"key :\nkey2 : value",
+			"key : value with spaces",
+			"key : \"quoted\" ",
+			"key : $ref",
+			"key : [a, b c, \"d\", $e]",
+			"key1 : [a, b]\nkey2 : []\n",
+			"key : []",
+			"key (attr1=1 attr2=two words attr3=\"3\") : value",
+			"key (attr=1) [env=prd] : value",
+			"key (a=1 b=2 c) : value",
+			"key[env=prd & os = osx] : value\nkey : default",
+			"group {\n}\n",
+			"group{key:value}",
+			"group\n\n{\n\tkey : value\n\n\tsub {\n\t\tkey : [a]\n\t}\n}\n",
+			"group[env=prd] {\n\tkey : value\n}\ngroup[env=dev] {\n\tkey : value\n}\n",
+			"| id | value |\n| 1 | a |\n| 2 | b c |\n",
+			"| id | value |\n| 1 | [a, b] |\n| 2 | [] |\n| 3 | [a] b |\n| 4 | [a], [b] |\n",
+			"| id | value |\n|    | |\n",
+			"| id | value |\n\n| 1 | a |\n",
+			"| id | value |\n  \n| 1 | a |\n",
+			"| id | value |\n# comment\n| 1 | a |\n",
+			"group {\n\t| id | value |\n\t| 1 | a : b = c { } |\n}\n",
+			"key : \"\"\"\n  multi\n  line\n\"\"\"\nkey2 : \"a\nb\"",
+		};
+		for (String config : configs) {
+			assertSameCalls(config, true);
+		}
+	}
+	
+	@Test
+	public void invalidInput() {
+		String[] configs = {
+			"key", 
+			"key : value\n}", 
+			"key : value\nfoo", 
+			"key : [a",
+			"key : [a b=c]",
+			"key (attr) : value",
+			"key[a=b c=d] : value",
+			"group {\n\tkey : value\n",
+			"| id | value\n",
+			"key : a <b",
+		};
+		for (String config : configs) {
+			assertSameCalls(config, false);
+		}
+	}
+	
+	@Test
+	public void parser() throws IOException {
+		TECL expected = TECL.parser().parse(Paths.get("src/test/resources/org/tbee/tecl/test.tecl"), StandardCharsets.UTF_8);
+		TECL actual = TECL.parser().fastParser(true).parse(Paths.get("src/test/resources/org/tbee/tecl/test.tecl"), StandardCharsets.UTF_8);
+		Assert.assertEquals(expected.str("title"), actual.str("title"));
+		Assert.assertEquals(expected.str("title2"), actual.str("title2"));
+		Assert.assertEquals(expected.strs("hosts"), actual.strs("hosts"));
+		Assert.assertEquals(expected.grp("indented").str("description2"), actual.grp("indented").str("description2"));
+		Assert.assertEquals(expected.grp("database").grp("dialect").keys(), actual.grp("database").grp("dialect").keys());
+	}
+	
+	@Test
+	public void parserFallsBackToANTLR() {
+		Assert.assertEquals("line 3:15 no viable alternative at input 'value'", Assert.assertThrows(ParseCancellationException.class, () -> {
+			TECL.parser().fastParser(true).parse("key : value\ngroup {\n    key : value\n");
+		}).getMessage());
+		
+		// ANTLR ignores what it cannot parse after the last config
+		Assert.assertEquals("value", TECL.parser().fastParser(true).parse("key : value\n}").str("key"));
+	}
+	
+	/* */
+	private void assertSameCalls(String config, boolean valid) {
+		List<String> expected = new ArrayList<>();
+		try {
+			TECLLexer lexer = new TECLLexer(CharStreams.fromString(config));
+			lexer.removeErrorListeners();
+			lexer.addErrorListener(new ThrowingErrorListener());
+			org.tbee.tecl.antlr.TECLParser parser = new org.tbee.tecl.antlr.TECLParser(new CommonTokenStream(lexer));
+			parser.removeErrorListeners();
+			parser.addErrorListener(new ThrowingErrorListener());
+			parser.parse(new LoggingListener(expected));
+		}
+		catch (ParseCancellationException e) {
+			expected.add("error");
+		}
+		
+		List<String> actual = new ArrayList<>();
+		try {
+			TECLTokenSource tokenSource = new TECLTokenSource(CharStreams.fromString(config));
+			tokenSource.addErrorListener(new ThrowingErrorListener());
+			new TECLFastParser(tokenSource).parse(new LoggingListener(actual));
+		}
+		catch (ParseCancellationException e) {
+			// Rejecting input is always allowed, ANTLR will parse it instead
+			Assert.assertFalse(config + " -> " + e.getMessage(), valid);
+			return;
+		}
+		Assert.assertTrue(config, valid);
+		Assert.assertEquals(config, expected, actual);
+	}
+
+	/* */
+	static private class ThrowingErrorListener extends BaseErrorListener {
+		@Override
+		public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
+			throw new ParseCancellationException("line " + line + ":" + charPositionInLine + " " + msg);
+		}
+	}
+	
+	/* */
+	static private class LoggingListener implements Listener {
+		private final List<String> calls;
+		
+		LoggingListener(List<String> calls) {
+			this.calls = calls;
+		}
+		
+		@Override
+		public void setProperty(String key, List<String> values) {
+			calls.add("setProperty " + key + " " + values);
+		}
+
+		@Override
+		public void setProperty(int idx, String key, String value) {
+			calls.add("setProperty " + idx + " " + key + " '" + value + "'");
+		}
+
+		@Override
+		public void startGroup(String id) {
+			calls.add("startGroup " + id);
+		}
+
+		@Override
+		public void endGroup() {
+			calls.add("endGroup");
+		}
+
+		@Override
+		public void startAttributes() {
+			calls.add("startAttributes");
+		}
+
+		@Override
+		public void addAttribute(String key, String value) {
+			calls.add("addAttribute " + key + " '" + value + "'");
+		}
+
+		@Override
+		public void startConditions() {
+			calls.add("startConditions");
+		}
+
+		@Override
+		public void addCondition(String key, String comparator, String value) {
+			calls.add("addCondition " + key + " " + comparator + " '" + value + "'");
+		}
+
+		@Override
+		public void startTable() {
+			calls.add("startTable");
+		}
+
+		@Override
+		public void terminateTable() {
+			calls.add("terminateTable");
+		}
+
+		@Override
+		public void startTableRow() {
+			calls.add("startTableRow");
+		}
+
+		@Override
+		public void addTableData(List<String> values) {
+			calls.add("addTableData " + values);
+		}
+
+		@Override
+		public void addTableData(String value) {
+			calls.add("addTableData '" + value + "'");
+		}
+	}
+}
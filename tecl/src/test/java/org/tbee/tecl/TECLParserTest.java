@@ -26,8 +26,20 @@ package org.tbee.tecl;
  * #L%
  */
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
 
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -70,4 +82,382 @@ public class TECLParserTest {
 		Assert.assertNotNull(tecl);
 		Assert.assertEquals("resource", tecl.str("type"));
 	}
+	
+	@Test
+	public void cachedImports() throws IOException {
+		Path dir = Files.createTempDirectory("tecl-import-cache");
+		try {
+			Path fragment = dir.resolve("fragment.tecl");
+			Files.writeString(fragment, "fragment : first\n", StandardCharsets.UTF_8);
+			String relativeFragment = Paths.get("").toAbsolutePath().relativize(fragment).toString();
+			String config = ""
+					+ "@import " + relativeFragment + "\n"
+					+ "group {\n"
+					+ "@import " + fragment.toUri() + "\n"
+					+ "}\n";
+			
+			// The file and the file: URL are the same file, so it is read only once
+			CachingImportResolver importResolver = new CachingImportResolver();
+			Assert.assertEquals("first", TECL.parser().importResolver(importResolver).parse(config).str("fragment"));
+			Assert.assertEquals(1, importResolver.getMissCount());
+			Assert.assertEquals(1, importResolver.getHitCount());
+			
+			// The second parse uses the cached imports
+			TECL tecl = TECL.parser().importResolver(importResolver).parse(config);
+			Assert.assertEquals("first", tecl.str("fragment"));
+			Assert.assertEquals("first", tecl.str("/group/fragment"));
+			Assert.assertEquals(1, importResolver.getMissCount());
+			Assert.assertEquals(3, importResolver.getHitCount());
+			
+			// A changed file is read again
+			Files.writeString(fragment, "fragment : second\n", StandardCharsets.UTF_8);
+			tecl = TECL.parser().importResolver(importResolver).parse(config);
+			Assert.assertEquals("second", tecl.str("fragment"));
+			Assert.assertEquals("second", tecl.str("/group/fragment"));
+			Assert.assertEquals(2, importResolver.getMissCount());
+		}
+		finally {
+			for (File file : dir.toFile().listFiles()) {
+				Files.delete(file.toPath());
+			}
+			Files.delete(dir);
+		}
+	}
+	
+	@Test
+	public void cachedImportsByContentHash() throws IOException {
+		Path dir = Files.createTempDirectory("tecl-import-cache");
+		try {
+			Path fragment = dir.resolve("fragment.tecl");
+			Files.writeString(fragment, "fragment : first\n", StandardCharsets.UTF_8);
+			String config = "@import " + fragment.toUri() + "\n";
+			
+			CachingImportResolver importResolver = new CachingImportResolver(CachingImportResolver.Validation.CONTENT_HASH);
+			Assert.assertEquals("first", TECL.parser().importResolver(importResolver).parse(config).str("fragment"));
+			
+			// Writing the same content is not a change
+			Files.writeString(fragment, "fragment : first\n", StandardCharsets.UTF_8);
+			Assert.assertEquals("first", TECL.parser().importResolver(importResolver).parse(config).str("fragment"));
+			Assert.assertEquals(1, importResolver.getMissCount());
+			Assert.assertEquals(1, importResolver.getHitCount());
+			
+			// But different content is
+			Files.writeString(fragment, "fragment : other\n", StandardCharsets.UTF_8);
+			Assert.assertEquals("other", TECL.parser().importResolver(importResolver).parse(config).str("fragment"));
+			Assert.assertEquals(2, importResolver.getMissCount());
+		}
+		finally {
+			for (File file : dir.toFile().listFiles()) {
+				Files.delete(file.toPath());
+			}
+			Files.delete(dir);
+		}
+	}
+	
+	@Test
+	public void reusedEngine() {
+		// list values of the previous parse on this thread must not leak into the next
+		Assert.assertEquals("[aaa, bbb]", TECL.parser().parse("key : [aaa, bbb]\n").strs("key").toString());
+		Assert.assertEquals(0, TECL.parser().parse("key : []\n").count("key"));
+		
+		// a failed parse does not affect the next one
+		Assert.assertThrows(ParseCancellationException.class, () -> TECL.parser().parse("key : [aaa\n"));
+		Assert.assertEquals("value", TECL.parser().parse("key : value\n").str("key"));
+	}
+	
+	@Test
+	public void warmupAndClearDFACache() {
+		TECLParser.warmup();
+		TECLParser.clearDFACache();
+		Assert.assertEquals("value", TECL.parser().parse("key : value\n").str("key"));
+	}
+	
+	@Test
+	public void syntaxErrorMessage() {
+		// a syntax error makes the fast SLL stage fail, the message comes from the full LL stage as before
+		Assert.assertEquals("line 3:15 no viable alternative at input 'value'", Assert.assertThrows(ParseCancellationException.class, () -> {
+			TECL.parser().parse(""
+				+ "key : value\n"
+				+ "group {\n"
+				+ "    key : value\n");
+		}).getMessage());
+		Assert.assertEquals("line 1:5 no viable alternative at input 'key[:'", Assert.assertThrows(ParseCancellationException.class, () -> {
+			TECL.parser().parse(""
+				+ "key[ : value\n");
+		}).getMessage());
+	}
+	
+	@Test
+	public void sanitizeOnParse() throws IOException {
+		TECL tecl = TECL.parser().parse(Paths.get("src/test/resources/org/tbee/tecl/test.tecl"), StandardCharsets.UTF_8);
+		TECL sanitized = TECL.parser().sanitizeOnParse(true).parse(Paths.get("src/test/resources/org/tbee/tecl/test.tecl"), StandardCharsets.UTF_8);
+		Assert.assertEquals(tecl.str("title"), sanitized.str("title"));
+		Assert.assertEquals(tecl.str("escaped"), sanitized.str("escaped"));
+		Assert.assertEquals(tecl.strs("hosts"), sanitized.strs("hosts"));
+		for (String key : List.of("description1", "description2", "description3")) {
+			Assert.assertEquals(tecl.grp("indented").str(key), sanitized.grp("indented").str(key));
+			Assert.assertEquals(tecl.grp("indented").raw(0, key, null), sanitized.grp("indented").raw(0, key, null));
+		}
+		
+		// table cells
+		sanitized = TECL.parser().sanitizeOnParse(true).parse(""
+				+ "| id  | value           | \n"
+				+ "| id1 | \"quoted\\tvalue\" | \n"
+				+ "| id2 | plain           | \n");
+		Assert.assertEquals("quoted\tvalue", sanitized.str(0, "value"));
+		Assert.assertEquals("\"quoted\\tvalue\"", sanitized.raw(0, "value", null));
+		Assert.assertEquals("plain", sanitized.str(1, "value"));
+		
+		// lists in table cells
+		sanitized = TECL.parser().sanitizeOnParse(true).parse(""
+				+ "| id  | value                   | \n"
+				+ "| id1 | plain                   | \n"
+				+ "| id2 | plain                   | \n"
+				+ "| id3 | [\"quoted\\tvalue\", plain] | \n");
+		Assert.assertEquals(List.of("quoted\tvalue", "plain"), sanitized.list("value[2]", null, String.class));
+		TECL listTECL = sanitized.groups.get("|value|").get(2);
+		Assert.assertEquals("quoted\tvalue", listTECL.properties.get("value").get(0).sanitized);
+		Assert.assertEquals("\"quoted\\tvalue\"", listTECL.raw(0, "value", null));
+	}
+	
+	@Test
+	public void pooledStrings() {
+		TECL tecl = TECL.parser().parse(""
+				+ "a { \n"
+				+ "    enabled : true \n"
+				+ "    | id | type | \n"
+				+ "    | x  | int  | \n"
+				+ "} \n"
+				+ "b { \n"
+				+ "    enabled : true \n"
+				+ "    | id | type | \n"
+				+ "    | y  | int  | \n"
+				+ "} \n");
+		Assert.assertSame(tecl.grp("a").keys().get(0), tecl.grp("b").keys().get(0));
+		Assert.assertSame(tecl.grp("a").raw(0, "enabled", null), tecl.grp("b").raw(0, "enabled", null));
+		Assert.assertSame(tecl.grp("a").raw(0, "type", null), tecl.grp("b").raw(0, "type", null));
+	}
+	
+	@Test
+	public void binaryRoundtrip() throws IOException {
+		TECL tecl = TECL.parser().parse(Paths.get("src/test/resources/org/tbee/tecl/test.tecl"), StandardCharsets.UTF_8);
+		ByteArrayOutputStream written = new ByteArrayOutputStream();
+		TECLBinary.write(tecl, written);
+		
+		TECL read = TECLBinary.read(new ByteArrayInputStream(written.toByteArray()));
+		Assert.assertEquals(tecl.str("title"), read.str("title"));
+		Assert.assertEquals(tecl.str("title2"), read.str("title2"));
+		Assert.assertEquals(tecl.strs("hosts"), read.strs("hosts"));
+		Assert.assertEquals(tecl.grp("indented").str("description2"), read.grp("indented").str("description2"));
+		Assert.assertEquals(tecl.grp("/database/dialect").keys(), read.grp("/database/dialect").keys());
+		
+		// writing what was read gives exactly the same bytes
+		ByteArrayOutputStream rewritten = new ByteArrayOutputStream();
+		TECLBinary.write(read, rewritten);
+		Assert.assertArrayEquals(written.toByteArray(), rewritten.toByteArray());
+	}
+	
+	@Test
+	public void binaryTablesAndAttributes() throws IOException {
+		TECL tecl = TECL.parser().parse(""
+				+ "key (unit=cm format=short) : 10\n"
+				+ "ref : $key\n"
+				+ "| id  | values |\n"
+				+ "| id1 | [1, 2] |\n"
+				+ "| id2 | [3]    |\n"
+				);
+		ByteArrayOutputStream written = new ByteArrayOutputStream();
+		TECLBinary.write(tecl, written);
+		TECL read = TECLBinary.read(new ByteArrayInputStream(written.toByteArray()));
+		Assert.assertEquals("cm", read.attr("key").str("unit"));
+		Assert.assertEquals(Integer.valueOf(10), read.integer("ref"));
+		Assert.assertEquals("id2", read.str(1, "id"));
+		Assert.assertEquals(Integer.valueOf(3), read.integer("id", "id2", "values", null));
+		Assert.assertEquals(tecl.grp(1, "|values|").strs("values"), read.grp(1, "|values|").strs("values"));
+	}
+	
+	@Test
+	public void mappedBinary() throws IOException {
+		TECL tecl = TECL.parser().parse(Paths.get("src/test/resources/org/tbee/tecl/test.tecl"), StandardCharsets.UTF_8);
+		Path path = Files.createTempFile(Paths.get("target"), "tecl", ".teclc");
+		try {
+			try (
+				OutputStream outputStream = Files.newOutputStream(path);
+			) {
+				TECLBinary.write(tecl, outputStream);
+			}
+			
+			TECL mapped = TECLBinary.map(path);
+			Assert.assertTrue(mapped.isFrozen());
+			Assert.assertEquals(tecl.str("title"), mapped.str("title"));
+			Assert.assertEquals(tecl.str("title2"), mapped.str("title2"));
+			Assert.assertEquals(tecl.strs("hosts"), mapped.strs("hosts"));
+			Assert.assertEquals(tecl.grp("indented").str("description2"), mapped.grp("indented").str("description2"));
+			Assert.assertEquals(tecl.grp("/database/dialect").keys(), mapped.grp("/database/dialect").keys());
+			Assert.assertEquals(tecl.grp("/database/dialect").getPath(), mapped.grp("/database/dialect").getPath());
+			Assert.assertSame(mapped.grp("database"), mapped.grp("database"));
+			Assert.assertSame(mapped.properties.get("title").get(0), mapped.properties.get("title").get(0));
+			Assert.assertEquals(tecl.localDateTime("releaseDateTime"), mapped.localDateTime("releaseDateTime"));
+			Assert.assertSame(mapped.localDateTime("releaseDateTime"), mapped.localDateTime("releaseDateTime")); // the conversion is remembered
+			Assert.assertTrue(mapped.grp("database").isFrozen());
+			Assert.assertThrows(IllegalStateException.class, () -> mapped.setProperty("key", "value", null));
+			
+			// the mapped tree writes exactly the same bytes
+			ByteArrayOutputStream written = new ByteArrayOutputStream();
+			TECLBinary.write(tecl, written);
+			ByteArrayOutputStream rewritten = new ByteArrayOutputStream();
+			TECLBinary.write(mapped, rewritten);
+			Assert.assertArrayEquals(written.toByteArray(), rewritten.toByteArray());
+		}
+		finally {
+			Files.delete(path);
+		}
+	}
+	
+	@Test
+	public void compiled() throws IOException {
+		Path dir = Files.createTempDirectory(Paths.get("target"), "tecl"); // imports are relative to the current directory
+		Path imported = dir.resolve("imported.tecl");
+		Path config = dir.resolve("config.tecl");
+		Files.write(imported, "importedKey : importedValue\n".getBytes(StandardCharsets.UTF_8));
+		Files.write(config, ("key : value\n@import " + imported + "\n").getBytes(StandardCharsets.UTF_8));
+		try {
+			System.setProperty("config.tecl", config.toString());
+			TECL.parser().compile(config.toFile(), StandardCharsets.UTF_8);
+			Assert.assertTrue(Files.exists(dir.resolve("config.teclc")));
+			
+			// Make the file different without changing its size or last modified; the compiled file is used
+			FileTime lastModified = Files.getLastModifiedTime(config);
+			Files.write(config, ("KEY : VALUE\n@import " + imported + "\n").getBytes(StandardCharsets.UTF_8));
+			Files.setLastModifiedTime(config, lastModified);
+			TECL tecl = TECL.parser().findAndParse();
+			Assert.assertEquals("value", tecl.str("key"));
+			Assert.assertEquals("importedValue", tecl.str("importedKey"));
+			tecl = TECL.parser().mapCompiled(true).findAndParse();
+			Assert.assertEquals("value", tecl.str("key"));
+			Assert.assertTrue(tecl.isFrozen());
+			
+			// Different parameters; the file is parsed
+			Assert.assertEquals("VALUE", TECL.parser().addParameter("env", "prd").findAndParse().str("KEY"));
+			
+			// A changed import; the file is parsed
+			Files.write(imported, "importedKey : changedValue\n".getBytes(StandardCharsets.UTF_8));
+			Files.setLastModifiedTime(imported, FileTime.fromMillis(lastModified.toMillis() + 10000));
+			tecl = TECL.parser().findAndParse();
+			Assert.assertEquals("VALUE", tecl.str("KEY"));
+			Assert.assertEquals("changedValue", tecl.str("importedKey"));
+		}
+		finally {
+			System.clearProperty("config.tecl");
+			Files.deleteIfExists(dir.resolve("config.teclc"));
+			Files.delete(config);
+			Files.delete(imported);
+			Files.delete(dir);
+		}
+	}
+	
+	@Test
+	public void damagedCompiled() throws IOException {
+		Path dir = Files.createTempDirectory(Paths.get("target"), "tecl");
+		Path config = dir.resolve("config.tecl");
+		Path compiled = dir.resolve("config.teclc");
+		Files.write(config, "key : value\n".getBytes(StandardCharsets.UTF_8));
+		try {
+			System.setProperty("config.tecl", config.toString());
+			TECL.parser().compile(config.toFile(), StandardCharsets.UTF_8);
+			byte[] bytes = Files.readAllBytes(compiled);
+			
+			// truncated; the file is parsed
+			Files.write(compiled, Arrays.copyOf(bytes, bytes.length - 10));
+			Assert.assertEquals("value", TECL.parser().findAndParse().str("key"));
+			Assert.assertEquals("value", TECL.parser().mapCompiled(true).findAndParse().str("key"));
+			
+			// truncated in the header
+			Files.write(compiled, Arrays.copyOf(bytes, 12));
+			Assert.assertEquals("value", TECL.parser().findAndParse().str("key"));
+			
+			// same length, but damaged 
+			byte[] damaged = bytes.clone();
+			damaged[damaged.length - 3] ^= 0x55;
+			Files.write(compiled, damaged);
+			Assert.assertEquals("value", TECL.parser().findAndParse().str("key"));
+			Assert.assertThrows(IOException.class, () -> TECLBinary.read(new ByteArrayInputStream(damaged)));
+			TECLBinary.map(compiled); // mapping only checks the length, so it does not read the whole file
+			Files.write(compiled, Arrays.copyOf(bytes, bytes.length - 10));
+			Assert.assertThrows(IOException.class, () -> TECLBinary.map(compiled));
+			
+			// writing the compiled file fails; no temporary file is left behind
+			Files.delete(compiled);
+			Files.createDirectory(compiled);
+			Files.write(compiled.resolve("occupied"), new byte[0]);
+			Assert.assertThrows(IOException.class, () -> TECL.parser().compile(config.toFile(), StandardCharsets.UTF_8));
+			Assert.assertFalse(Files.exists(dir.resolve("config.teclc.tmp")));
+			Files.delete(compiled.resolve("occupied"));
+		}
+		finally {
+			System.clearProperty("config.tecl");
+			Files.deleteIfExists(compiled);
+			Files.delete(config);
+			Files.delete(dir);
+		}
+	}
+	
+	@Test
+	public void metrics() throws IOException {
+		Path dir = Files.createTempDirectory(Paths.get("target"), "tecl"); // imports are relative to the current directory
+		Path imported = dir.resolve("imported.tecl");
+		Path config = dir.resolve("config.tecl");
+		Files.write(imported, "title : abc\n".getBytes(StandardCharsets.UTF_8));
+		Files.write(config, ("timeout : 10\n@import " + imported + "\n").getBytes(StandardCharsets.UTF_8));
+		try {
+			Assert.assertSame(TECLMetrics.NONE, TECL.parser().parse("key : value").getMetrics());
+			
+			// parse
+			InMemoryTECLMetrics metrics = new InMemoryTECLMetrics();
+			TECL tecl = TECL.parser()
+					.metrics(metrics)
+					.schema(""
+						+ "| id      | type    |\n"
+						+ "| timeout | Integer |\n"
+						+ "| title   | String  |\n"
+						)
+					.parse(config, StandardCharsets.UTF_8);
+			Assert.assertSame(metrics, tecl.getMetrics());
+			for (TECLMetrics.Phase phase : TECLMetrics.Phase.values()) {
+				Assert.assertEquals(phase.toString(), 1, metrics.getPhaseCount(phase));
+			}
+			Assert.assertEquals(1, metrics.getImportCount());
+			
+			// lookups and the conversion cache
+			metrics.reset();
+			Assert.assertEquals(10, tecl.integer("timeout").intValue());
+			Assert.assertEquals(10, tecl.integer("/timeout").intValue());
+			Assert.assertEquals(2, metrics.getLookupCount("/timeout[0]")); // the convenience methods look up the first value
+			Assert.assertEquals(0.5, metrics.getCacheHitRate(TECLMetrics.Cache.CONVERSION), 0.0);
+			
+			// conversion failures
+			Assert.assertThrows(NumberFormatException.class, () -> tecl.integer("title"));
+			Assert.assertEquals(1, metrics.getConversionFailureCount("/title"));
+			Assert.assertEquals(1, metrics.getConversionFailureCount());
+			
+			// the value index, with metrics set after parsing 
+			TECL table = TECL.parser().parse(""
+					+ "| id    | value |\n"
+					+ "| alpha | 1     |\n"
+					+ "| beta  | 2     |\n"
+					).metrics(metrics);
+			Assert.assertEquals(2, table.integer("id", "beta", "value", null).intValue());
+			Assert.assertEquals(1, table.integer("id", "alpha", "value", null).intValue());
+			Assert.assertEquals(0.5, metrics.getCacheHitRate(TECLMetrics.Cache.VALUE_INDEX), 0.0);
+			
+			String dump = metrics.dump();
+			Assert.assertTrue(dump, dump.contains("/timeout"));
+			Assert.assertTrue(dump, dump.contains("conversion failures 1"));
+		}
+		finally {
+			Files.delete(config);
+			Files.delete(imported);
+			Files.delete(dir);
+		}
+	}
 }
@@ -27,7 +27,10 @@ package org.tbee.tecl;
  */
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -544,6 +547,63 @@ public class TECLSchemaTest {
 			);
 	}
 
+	// ========================
+	// TABLE
+	
+	@Test
+	public void typedTableColumnsAreCompacted() {
+		TECL tecl = parse(""
+			+ "| id | amount | ratio | zip  | size        | date       | \n"
+			+ "| a  | 1      | 0.5   | 0123 | 1           | 2020-01-01 | \n"
+			+ "| b  | -20    | 1.25  | 4567 | 12345678901 | 2020-01-02 | \n"
+			, ""
+			+ "| id     | type    | \n" 
+			+ "| id     | String  | \n" 
+			+ "| amount | Integer | \n" 
+			+ "| ratio  | Double  | \n" 
+			+ "| zip    | Integer | \n" 
+			+ "| size   | Long    | \n" 
+			+ "| date   | LocalDate | \n" 
+			);
+		assertTrue(((TECLColumn)tecl.properties.keyTovaluesMap().get("amount")).isCompacted());
+		assertTrue(((TECLColumn)tecl.properties.keyTovaluesMap().get("size")).isCompacted());
+		assertEquals(Long.valueOf(12345678901L), tecl.row(1).get("size", null, Long.class));
+		assertEquals("12345678901", tecl.str(1, "size"));
+		assertTrue(((TECLColumn)tecl.properties.keyTovaluesMap().get("ratio")).isCompacted());
+		assertFalse(((TECLColumn)tecl.properties.keyTovaluesMap().get("zip")).isCompacted()); // leading zero would be lost
+		assertFalse(((TECLColumn)tecl.properties.keyTovaluesMap().get("id")).isCompacted());
+		
+		assertEquals("-20", tecl.str(1, "amount"));
+		assertSame(tecl.str(1, "amount"), tecl.str(1, "amount")); // the string of a compacted cell is remembered
+		assertSame(tecl.localDate(0, "date"), tecl.row(0).localDate("date"));
+		assertEquals(Integer.valueOf(-20), tecl.integer(1, "amount"));
+		assertEquals(Double.valueOf(1.25), tecl.dbl(1, "ratio"));
+		assertEquals("0123", tecl.str(0, "zip"));
+		assertEquals(Integer.valueOf(-20), tecl.row(1).integer("amount")); // directly from the primitive
+		assertEquals(Double.valueOf(1.25), tecl.row(1).dbl("ratio"));
+		assertEquals("1.25", tecl.row(1).str("ratio"));
+		
+		// modifying expands the column again
+		tecl.setProperty(2, "amount", "0030", null);
+		assertFalse(((TECLColumn)tecl.properties.keyTovaluesMap().get("amount")).isCompacted());
+		assertEquals("1", tecl.str(0, "amount"));
+		assertEquals("0030", tecl.str(2, "amount"));
+	}
+	
+	@Test
+	public void validateDoesNotCompact() {
+		TECL tecl = TECL.parser().parse(""
+			+ "| id | amount | \n"
+			+ "| a  | 1      | \n"
+			);
+		new TECLSchema(""
+			+ "| id     | type    | \n" 
+			+ "| id     | String  | \n" 
+			+ "| amount | Integer | \n" 
+			).validate(tecl);
+		assertFalse(((TECLColumn)tecl.properties.keyTovaluesMap().get("amount")).isCompacted());
+	}
+
 	// ========================
 	
 	private TECL parse(String tecl, String tesd, Validator... validators) {
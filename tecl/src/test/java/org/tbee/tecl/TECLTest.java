@@ -27,7 +27,9 @@ package org.tbee.tecl;
  */
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
@@ -36,11 +38,17 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.nio.charset.Charset;
+import java.nio.file.Paths;
 import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -125,6 +133,18 @@ public class TECLTest {
 		assertEquals(value, tecl.str("key"));
 	}
 	
+	@Test
+	public void multilineIndentedWithEmptyLine() {
+		TECL tecl = parse(""
+				+ "key : \"\"\"\n"
+				+ "        first\n"
+				+ "\n"
+				+ "          second\n"
+				+ "        \"\"\"\n"
+				);
+		assertEquals("first\n\n  second", tecl.str("key"));
+	}
+	
 	@Test
 	public void stringPropertyDefault() {
 		TECL tecl = parse("key : abc \n");
@@ -247,6 +267,23 @@ public class TECLTest {
 		assertEquals(LocalDateTime.of(2020, 06, 20, 12, 34, 56), tecl.localDateTime("key"));
 	}
 	
+	@Test
+	public void convertedValueIsRemembered() {
+		TECL tecl = parse("key : 123.4 \n");
+		BigDecimal bd = tecl.bd("key");
+		assertTrue(bd == tecl.bd("key"));
+		assertEquals(Integer.valueOf(123), parse("key : 123 \n").integer("key"));
+		
+		// setting the property again must not return the remembered value
+		tecl.setProperty(0, "key", "567.8", true, null);
+		assertEquals(BigDecimal.valueOf(567.8), tecl.bd("key"));
+		
+		// defaults are never remembered
+		tecl.setProperty(0, "key", "", true, null);
+		assertEquals(BigDecimal.ONE, tecl.bd("key", BigDecimal.ONE));
+		assertEquals(BigDecimal.TEN, tecl.bd("key", BigDecimal.TEN));
+	}
+	
 	// ========================
 	// CUSTOM TYPE
 
@@ -271,7 +308,27 @@ public class TECLTest {
 		List<Temperature> temperatures = tecl.list("key", Temperature.class);
 		assertEquals(123, temperatures.get(0).value);
 		assertEquals("F", temperatures.get(0).unit);
+		
+		// custom types may be mutable, so these are not remembered
+		assertTrue(temperature != tecl.get("key", Temperature.class));
 	}
+	@Test
+	public void customTypeSharedByTree() {
+		TECL tecl = parse(""
+				+ "group { \n"
+				+ "    key(t=75F) : 123F \n"
+				+ "}\n"
+				);
+		tecl.grp("group").addConvertFunction(Temperature.class, (str, def) -> {
+			Temperature t = new Temperature();
+			t.value = Integer.parseInt(str.replace("F", ""));
+			return t;
+		});
+		assertEquals(123, tecl.get("/group/key", Temperature.class).value);
+		assertEquals(75, tecl.grp("group").attr("key").get("t", Temperature.class).value);
+		assertTrue(parse("key : 123F \n").convertFunction(Temperature.class) == null);
+	}
+	
 	public static class Temperature {
 		int value;
 		String unit;
@@ -389,6 +446,96 @@ public class TECLTest {
 		assertNull(tecl.str("group1/group2/key"));
 	}
 	
+	@Test
+	public void freeze() {
+		TECL tecl = parse(""
+				+ "title : test\n"
+				+ "group { \n"
+				+ "    key : value\n"
+				+ "    | id  | type |\n"
+				+ "    | id1 | int  |\n"
+				+ "    | id2 | str  |\n"
+				+ "}\n");
+		assertTrue(tecl.grp("group").freeze().isFrozen());
+		assertTrue(tecl.isFrozen());
+		
+		// reading still works
+		assertEquals("test", tecl.str("title"));
+		assertEquals("value", tecl.grp("group").str("key"));
+		assertEquals("str", tecl.str("/group/type[1]"));
+		assertEquals(1, tecl.grp("group").indexOf("id", "id2"));
+		assertEquals("/group[0]/", tecl.grp("group").getPath());
+		assertEquals("[title]", tecl.keys().toString());
+		
+		// modifying does not
+		assertThrows(IllegalStateException.class, () -> tecl.setProperty("title", "other", null));
+		assertThrows(IllegalStateException.class, () -> tecl.grp("group").clearProperty("key"));
+		assertThrows(IllegalStateException.class, () -> tecl.addGroup("group2"));
+		assertThrows(IllegalStateException.class, () -> tecl.addCommandLineArguments(new String[] {"--key", "value"}));
+		assertEquals("test", tecl.str("title"));
+	}
+
+	@Test
+	public void frozenConcurrentReads() throws Exception {
+		TECL tecl = parse(""
+				+ "group { \n"
+				+ "    | id  | value |\n"
+				+ "    | id1 | 1     |\n"
+				+ "    | id2 | 2     |\n"
+				+ "}\n").freeze();
+		ExecutorService executorService = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Integer>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(executorService.submit(() -> {
+					int sum = 0;
+					for (int j = 0; j < 1000; j++) {
+						sum += tecl.integer("/group/value[0]") + tecl.grp("group").integer(1, "value");
+					}
+					return sum;
+				}));
+			}
+			for (Future<Integer> future : futures) {
+				assertEquals(3000, future.get().intValue());
+			}
+		}
+		finally {
+			executorService.shutdown();
+		}
+	}
+	
+	@Test
+	public void groupListIsACopy() {
+		TECL tecl = parse(""
+				+ "groupId { \n"
+				+ "}\n"
+				+ "groupId { \n"
+				+ "}\n");
+		List<TECL> grps = tecl.grps("groupId");
+		grps.remove(0);
+		assertEquals(1, grps.size());
+		assertEquals(2, tecl.grps("groupId").size());
+		
+		// the copy does not change with the tree
+		tecl.addGroup("groupId");
+		assertEquals(1, grps.size());
+		assertEquals(3, tecl.grps("groupId").size());
+	}
+	
+	@Test
+	public void notExistingGroupChain() {
+		TECL tecl = parse(""
+				+ "group1 { \n"
+				+ "    key : value\n"
+				+ "}\n");
+		assertTrue(tecl.grp("group1") == tecl.grp("group1"));
+		TECL notExisting = tecl.grp("group1").grp("group2");
+		assertTrue(notExisting.getId().contains("not exist"));
+		assertTrue(notExisting.getParent() == tecl.grp("group1"));
+		assertEquals("value", notExisting.str("../key"));
+		assertNull(tecl.grp("group1").grp("group2").grp("group3").str("key"));
+	}
+	
 	@Test
 	public void identicalGroups() {
 		TECL tecl = parse(""
@@ -491,6 +638,34 @@ public class TECLTest {
 	}
 	
 	
+	@Test
+	public void tableRowViews() {
+		TECL tecl = parse(""
+				+ "ref : 42 \n"
+				+ "group { \n "
+				+ "    | id  | type            | size | \n "
+				+ "    | id1 | string          | 1    | \n"
+				+ "    | id2 | int             | $/ref | \n"
+				+ "    | id3 | [aaa,bbb,ccc]   | 3    | \n"
+				+ "}\n"
+				);
+		TECL group = tecl.grp("group");
+		assertEquals(3, group.rowCount());
+		assertEquals("[id1, id2, id3]", group.rowStream().map(row -> row.str("id")).collect(Collectors.toList()).toString());
+		assertEquals(Integer.valueOf(46), group.rowStream().map(row -> row.integer("size")).reduce(0, Integer::sum));
+		
+		TECLRow row = group.row(1);
+		assertEquals(1, row.getIdx());
+		assertEquals("int", row.str("type"));
+		assertEquals(Integer.valueOf(42), row.integer("size"));
+		assertEquals("def", row.str("notExist", "def"));
+		assertEquals(group.str(2, "type"), group.row(2).str("type"));
+		assertNull(row.get("type", null, Thread.class)); // no convert function, so the same as the regular path
+		
+		tecl.freeze();
+		assertEquals(group.str(2, "type"), group.row(2).str("type"));
+	}
+	
 	@Test
 	public void tableWithComments() {
 		TECL tecl = parse(""
@@ -721,6 +896,103 @@ public class TECLTest {
 		assertEquals("val1", tecl.grp("/group1/group2/group3").str("id", "id1", "val", null));
 	}
 	
+	@Test
+	public void tableColumnsAreStoredPacked() {
+		TECL tecl = parse(""
+				+ "| id  | val  | \n "
+				+ "| id0 | val0 | \n"
+				+ "| id1 | val1 | \n"
+				+ "| id2 |      | \n"
+				);
+		assertTrue(tecl.properties.keyTovaluesMap().get("id") instanceof TECLColumn);
+		assertEquals(3, tecl.count("id"));
+		assertEquals("val1", tecl.str(1, "val"));
+		assertEquals(3, tecl.rows().size());
+		assertEquals("id2", tecl.rows().get(2).str("id"));
+		
+		// a value with attributes does not fit in a column
+		tecl.setProperty(1, "val", "val1b", true, List.of(new TECL.Attribute("a", "1")));
+		assertFalse(tecl.properties.keyTovaluesMap().get("val") instanceof TECLColumn);
+		assertEquals("val0", tecl.str(0, "val"));
+		assertEquals("val1b", tecl.str(1, "val"));
+		assertEquals("1", tecl.attr(1, "val").str("a"));
+		
+		// frozen columns stay packed
+		tecl.freeze();
+		assertEquals("id1", tecl.str(1, "id"));
+		assertEquals(1, tecl.indexOf("id", "id1"));
+	}
+	
+	@Test
+	public void tableCellsRememberTheirConvertedValue() {
+		TECL tecl = parse(""
+				+ "| id  | date       | \n "
+				+ "| id0 | 2020-09-12 | \n"
+				+ "| id1 | 2021-01-01 | \n"
+				);
+		LocalDate date = tecl.row(1).localDate("date");
+		assertEquals(LocalDate.of(2021, 1, 1), date);
+		assertSame(date, tecl.row(1).localDate("date"));
+		assertSame(date, tecl.localDate(1, "date")); // also on the regular path
+		assertSame(tecl.localDate(0, "date"), tecl.row(0).localDate("date"));
+		
+		// a modified cell is converted again
+		tecl.setProperty(1, "date", "2022-02-02", true, null);
+		assertEquals(LocalDate.of(2022, 2, 2), tecl.row(1).localDate("date"));
+		assertEquals(LocalDate.of(2022, 2, 2), tecl.localDate(1, "date"));
+		
+		// a frozen column is still a column
+		tecl.freeze();
+		assertTrue(tecl.properties.keyTovaluesMap().get("date") instanceof TECLColumn);
+		assertSame(tecl.row(1).localDate("date"), tecl.row(1).localDate("date"));
+		assertThrows(IllegalStateException.class, () -> tecl.properties.keyTovaluesMap().get("date").clear());
+	}
+	
+	@Test
+	public void indexOfUsesIndex() {
+		TECL tecl = parse(""
+				+ "ref : id1 \n"
+				+ "group { \n"
+				+ "    | id     | val  | \n "
+				+ "    | id0    | val0 | \n"
+				+ "    | \"id1\" | val1 | \n"
+				+ "    | id2    | val2 | \n"
+				+ "    | id2    | val3 | \n"
+				+ "}\n"
+				+ "refs { \n"
+				+ "    | id    | val  | \n "
+				+ "    | $/ref | val0 | \n"
+				+ "}\n"
+				);
+		TECL group = tecl.grp("group");
+		
+		// The first occurrence wins 
+		assertEquals(2, group.indexOf("id", "id2"));
+		assertEquals("val2", group.str("id", "id2", "val", null));
+		
+		// indexOf uses the raw value, a lookup uses the value as str() returns it 
+		assertEquals(1, group.indexOf("id", "\"id1\""));
+		assertEquals(-1, group.indexOf("id", "id1"));
+		assertEquals("val1", group.str("id", "id1", "val", null));
+		assertEquals("notFound", group.str("id", "id9", "val", "notFound"));
+		
+		// Modifications invalidate the index
+		group.setProperty(2, "id", "id9", true, null);
+		assertEquals(3, group.indexOf("id", "id2"));
+		assertEquals("val3", group.str("id", "id2", "val", null));
+		assertEquals("val2", group.str("id", "id9", "val", null));
+		group.clearProperty("id");
+		assertEquals(-1, group.indexOf("id", "id2"));
+		assertEquals(null, group.str("id", "id2", "val", null));
+		
+		// A column with references falls back to resolving them
+		assertEquals("val0", tecl.grp("refs").str("id", "id1", "val", null));
+		
+		// Frozen
+		tecl.freeze();
+		assertEquals("val0", tecl.str("/refs/id", "id1", "/refs/val", null));
+	}
+	
 	// ========================
 	// GET
 	
@@ -762,6 +1034,52 @@ public class TECLTest {
 		assertEquals("[/group1[0]/group2[0]/, /group1[0]/group2[1]/]", tecl.list("group1/group2", null,null).toString());
 	}
 	
+	// ========================
+	// COMPILED PATH
+	
+	@Test
+	public void compiledPath() {
+		TECL tecl = parse(""
+				+ "group1 { \n"
+				+ "    key : [value0, value1] \n "
+				+ "}\n"
+				);
+		TECLPath path = TECL.compile("/group1/key");
+		assertTrue(path == TECL.compile("/group1/key"));
+		assertTrue(path.indexed(1) == path.indexed(1));
+		assertEquals("/group1/key[1]", path.indexed(1).toString());
+		assertEquals("[value0, value1]", tecl.list(path, null, String.class).toString());
+		assertEquals("value1", tecl.get(path.indexed(1), null, String.class));
+		assertEquals("value1", tecl.grp("group1").get(TECL.compile("../group1/key[1]"), null, String.class));
+		assertEquals("default", tecl.get(TECL.compile("/group1/notExist"), "default", String.class));
+	}
+	
+	@Test
+	public void indexedPathIsDerivedFromTheParsedPath() {
+		for (String path : List.of("key", "/group1/key", "../group1/key", "group1[2]/key[3]", "/", "group1/", "env@HOME", "sys@user.dir")) {
+			for (int idx : new int[] {0, 7, 8, 1500, -1}) {
+				TECLPath indexed = TECL.compile(path).indexed(idx);
+				TECLPath compiled = TECL.compile(path + "[" + idx + "]");
+				assertEquals(compiled.toString(), indexed.toString());
+				assertEquals(compiled.absolute, indexed.absolute);
+				assertEquals(compiled.env, indexed.env);
+				assertEquals(compiled.sys, indexed.sys);
+				assertEquals(compiled.variable, indexed.variable);
+				assertEquals(List.of(compiled.nodes), List.of(indexed.nodes));
+				assertEquals(List.of(compiled.idxs), List.of(indexed.idxs));
+			}
+		}
+		
+		StringBuilder table = new StringBuilder("| id | value |\n");
+		for (int row = 0; row < 2000; row++) {
+			table.append("| id").append(row).append(" | ").append(row * 2).append(" |\n");
+		}
+		TECL tecl = parse(table.toString());
+		for (int row = 0; row < 2000; row++) {
+			assertEquals(row * 2, tecl.integer(row, "value").intValue());
+		}
+	}
+	
 	// ========================
 	// REFERENCE
 	
@@ -1046,10 +1364,100 @@ public class TECLTest {
 		assertEquals("import2", tecl.str("import2"));
 	}
 
+	@Test
+	public void repeatedImportFile() {
+		TECL tecl = parse(""
+				+ "@import src/test/resources/org/tbee/tecl/import2.tecl\n"
+				+ "group {\n"
+				+ "@import src/test/resources/org/tbee/tecl/import2.tecl\n"
+				+ "}\n"
+				);
+		assertEquals("import2", tecl.str("import2"));
+		assertEquals("import2", tecl.str("/group/import2"));
+	}
+
+	@Test
+	public void prefetchedImportFiles() {
+		String config = ""
+				+ "key1 : value1\n"
+				+ "@import src/test/resources/org/tbee/tecl/import1.tecl\n"
+				+ "group {\n"
+				+ "@import src/test/resources/org/tbee/tecl/import2.tecl\n"
+				+ "}\n"
+				+ "@import " + this.getClass().getResource("test.tecl") + "\n"
+				+ "key2 : value2\n";
+		ExecutorService executorService = Executors.newFixedThreadPool(4);
+		try {
+			TECL tecl = TECL.parser().importExecutor(executorService).parse(config);
+			assertEquals("import1", tecl.str("import1"));
+			assertEquals("import2", tecl.str("import2"));
+			assertEquals("import2", tecl.str("/group/import2"));
+			assertEquals("TECL rulez", tecl.str("title"));
+			assertEquals(TECL.parser().parse(config).keys(), tecl.keys());
+			
+			assertThrows(IllegalStateException.class, () -> {
+				TECL.parser().importExecutor(executorService).parse("@import src/test/resources/org/tbee/tecl/cycle1.tecl\n");
+			});
+			assertThrows(RuntimeException.class, () -> {
+				TECL.parser().importExecutor(executorService).parse("@import src/test/resources/org/tbee/tecl/doesNotExist.tecl\n");
+			});
+		}
+		finally {
+			executorService.shutdown();
+		}
+	}
+
+	@Test
+	public void circularImportFile() {
+		IllegalStateException e = assertThrows(IllegalStateException.class, () -> {
+			parse(""
+				+ "@import src/test/resources/org/tbee/tecl/cycle1.tecl\n"
+				);
+		});
+		assertTrue(e.getMessage(), e.getMessage().contains("cycle1.tecl"));
+		
+		// importing the same file again after it was completed is not circular
+		TECL tecl = parse(""
+				+ "@import src/test/resources/org/tbee/tecl/import1.tecl\n"
+				+ "group {\n"
+				+ "@import src/test/resources/org/tbee/tecl/import1.tecl\n"
+				+ "}\n"
+				);
+		assertEquals("import1", tecl.str("import1"));
+		assertEquals("import1", tecl.str("/group/import1"));
+	}
+
 	
 	// ========================
 	// FILE
 
+	@Test
+	public void testPath() throws IOException {
+		TECL tecl = TECL.parser()
+				.addParameter("env", "production")
+				.parse(Paths.get("src/test/resources/org/tbee/tecl/test.tecl"), Charset.forName("UTF-8"));
+		assertEquals("TECL rulez", tecl.str("title"));
+		assertEquals("prd", tecl.str("/servers/settings[4]/datasource"));
+		assertEquals(Integer.valueOf(12), tecl.grp("/servers").integer("name", "gamma", "maxSessions", null));
+	}
+
+	@Test
+	public void windowsLineEndings() {
+		TECL tecl = parse(""
+				+ "title : test\r\n"
+				+ "\r\n"
+				+ "group { \r\n"
+				+ "    | id  | type |\r\n"
+				+ "    | id1 | int  |\r\n"
+				+ "    | id2 | str  |\r\n"
+				+ "\r\n"
+				+ "    key : value\r\n"
+				+ "}\r\n");
+		assertEquals("test", tecl.str("title"));
+		assertEquals("str", tecl.str("/group/type[1]"));
+		assertEquals("value", tecl.str("/group/key"));
+	}
+
 	@Test
 	public void testFile() throws IOException {
 		TECL tecl = TECL.parser()
@@ -0,0 +1,171 @@
+package org.tbee.tecl;
+
+/*-
+ * #%L
+ * TECL
+ * %%
+ * Copyright (C) 2020 Tom Eugelink
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.junit.Assert;
+import org.junit.Test;
+import org.tbee.tecl.antlr.TECLLexer;
+
+/**
+ * Compare the tokens of the hand written lexer with the ones of the generated lexer.
+ */
+public class TECLTokenSourceTest {
+
+	@Test
+	public void resources() throws IOException {
+		List<Path> paths;
+		try (
+			Stream<Path> stream = Files.walk(Paths.get("src/test/resources"));
+		) {
+			paths = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+		}
+		Assert.assertTrue(paths.size() > 5);
+		for (Path path : paths) {
+			assertSameTokens(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+		}
+	}
+	
+	@Test
+	public void edgeCases() {
+		String[] configs = {
+			"", 
+			"\n", 
+			"\r\n\r\n", 
+			"key : value", 
+			"key : value\n", 
+			"key:value\r\nkey2 : $key\n",
+			"  \t key \t : \t value with spaces  \n",
+			"key : value # comment",
+			"#comment\n# comment\n#",
+			"key : a#b",
+			"$ : $$ $a $",
+			"key : \"\"",
+			"key : \"a\\\"b\" c",
+			"key : \"a\\",
+			"key : \"unterminated",
+			"key : \"\"\"",
+			"key : \"\"\"\"",
+			"key : \"\"\"\"\"",
+			"key : \"\"\"\"\"\"",
+			"key : \"\"\"a\"\"\"b",
+			"key : \"\"\"a\"\"\" b",
+			"key : \"\"\"multi\nline\n\"\"\"\n",
+			"key : \"\"\"a\\\"\"\"b\"\"\"",
+			"key : \"\"\"a\\\"\"\"",
+			"key : \"\"\"a\\\"\"\"b",
+			"key : \"\"\"a\\\"\"\"\"",
+			"key : \"\"\"unterminated\nstring",
+			"key[env=prd & zone=eu|other] (attr=1, attr2=\"2\") : [a, \"b\", $c]\n",
+			"group {\n\tkey : value\n}\n",
+			"| id | value |\n| 1 | [a,b] |\n",
+			"key : éüß 😀 value\n",
+			"key : 😀\"😀\"\nkey2 : x\n",
+		};
+		for (String config : configs) {
+			assertSameTokens(config);
+		}
+	}
+	
+	@Test
+	public void errors() {
+		Assert.assertEquals("line 1:3 token recognition error at: '<'", assertSameTokens("key<value"));
+		Assert.assertEquals("line 2:0 token recognition error at: '>'", assertSameTokens("key : value\n>"));
+		Assert.assertEquals("line 1:6 token recognition error at: '!'", assertSameTokens("key : !value"));
+	}
+	
+	@Test
+	public void parse() {
+		TECL tecl = TECL.parser().fastLexer(true).parse("title : \"test\"\ngroup {\n    key : value # comment\n}\n");
+		Assert.assertEquals("test", tecl.str("title"));
+		Assert.assertEquals("value", tecl.grp("group").str("key"));
+	}
+	
+	/*
+	 * Returns the first error message (or null)
+	 */
+	private String assertSameTokens(String config) {
+		List<String> expectedErrors = new ArrayList<>();
+		TECLLexer lexer = new TECLLexer(CharStreams.fromString(config));
+		lexer.removeErrorListeners();
+		lexer.addErrorListener(new CollectingErrorListener(expectedErrors));
+		List<String> expected = tokens(lexer);
+		
+		List<String> errors = new ArrayList<>();
+		TECLTokenSource tokenSource = new TECLTokenSource(CharStreams.fromString(config));
+		tokenSource.addErrorListener(new CollectingErrorListener(errors));
+		List<String> actual = tokens(tokenSource);
+
+		Assert.assertEquals(config, expected, actual);
+		Assert.assertEquals(config, expectedErrors, errors);
+		return errors.isEmpty() ? null : errors.get(0);
+	}
+	
+	/* */
+	private List<String> tokens(TokenSource tokenSource) {
+		List<String> tokens = new ArrayList<>();
+		CharStream input = tokenSource.getInputStream();
+		Token token;
+		do {
+			token = tokenSource.nextToken();
+			tokens.add(token.getType() + " '" + token.getText() + "' " + token.getLine() + ":" + token.getCharPositionInLine() 
+				+ " " + token.getStartIndex() + "-" + token.getStopIndex() + " " + token.getChannel() + " " + (token.getInputStream() == input));
+		} while (token.getType() != Token.EOF);
+		tokens.add("end " + tokenSource.getLine() + ":" + tokenSource.getCharPositionInLine());
+		return tokens;
+	}
+	
+	/* */
+	static private class CollectingErrorListener extends BaseErrorListener {
+		private final List<String> errors;
+		
+		CollectingErrorListener(List<String> errors) {
+			this.errors = errors;
+		}
+		
+		@Override
+		public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
+			errors.add("line " + line + ":" + charPositionInLine + " " + msg);
+		}
+	}
+}